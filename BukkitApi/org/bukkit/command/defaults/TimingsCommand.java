@@ -1,10 +1,14 @@
 package org.bukkit.command.defaults;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.Bukkit;
@@ -15,17 +19,19 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
 import org.bukkit.plugin.TimedRegisteredListener;
+import org.bukkit.plugin.TimingsReport;
 import org.bukkit.util.StringUtil;
 
+import com.google.common.base.Charsets;
 import com.google.common.collect.ImmutableList;
 
 public class TimingsCommand extends BukkitCommand {
-    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("merged", "reset", "separate");
+    private static final List<String> TIMINGS_SUBCOMMANDS = ImmutableList.of("csv", "json", "merged", "reset", "separate");
 
     public TimingsCommand(String name) {
         super(name);
         this.description = "Records timings for all plugin events";
-        this.usageMessage = "/timings <reset|merged|separate>";
+        this.usageMessage = "/timings <reset|merged|separate|json|csv>";
         this.setPermission("bukkit.command.timings");
     }
 
@@ -103,6 +109,33 @@ public class TimingsCommand extends BukkitCommand {
                     fileNames.close();
                 }
             }
+        } else if ("json".equalsIgnoreCase(args[0]) || "csv".equalsIgnoreCase(args[0])) {
+            String extension = args[0].toLowerCase(Locale.ENGLISH);
+            int index = 0;
+            File timingFolder = new File("timings");
+            timingFolder.mkdirs();
+            File timings = new File(timingFolder, "timings." + extension);
+            while (timings.exists()) timings = new File(timingFolder, "timings" + (++index) + "." + extension);
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(timings), Charsets.UTF_8);
+                TimingsReport report = TimingsReport.collect(Bukkit.getPluginManager().getPlugins());
+                if ("json".equals(extension)) {
+                    report.writeJson(writer);
+                } else {
+                    report.writeCsv(writer);
+                }
+                sender.sendMessage("Timings written to " + timings.getPath());
+            } catch (IOException e) {
+                sender.sendMessage(ChatColor.RED + "Could not write timings: " + e.getMessage());
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
         } else {
             sender.sendMessage(ChatColor.RED + "Usage: " + usageMessage);
             return false;
@@ -0,0 +1,286 @@
+package org.bukkit.configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A path into a {@link ConfigurationSection}, split into its keys once so
+ * that it can be looked up repeatedly
+ * <p>
+ * A path is meant to be created once, for example in a constant, and then
+ * read wherever the value is needed:
+ * <pre>
+ * ConfigPath pvp = new ConfigPath("worlds.world.pvp.enabled");
+ * ...
+ * if (pvp.getBoolean(getConfig())) {
+ *     // ...
+ * }
+ * </pre>
+ * Lookups behave like the {@link ConfigurationSection} methods of the same
+ * name given the path as a string, including the fallback to the {@link
+ * Configuration#getDefaults() defaults} of the methods that take no default
+ * value, except that they never create sections. They walk {@link
+ * MemorySection}s directly without splitting the path again, and the typed
+ * getters return primitives without boxing the default value.
+ */
+public final class ConfigPath {
+    private final String path;
+    private final char separator;
+    private final String[] keys;
+
+    /**
+     * Compiles a path using the default separator {@code '.'}
+     *
+     * @param path Path to compile
+     */
+    public ConfigPath(String path) {
+        this(path, '.');
+    }
+
+    /**
+     * Compiles a path using the given separator, which must match the
+     * {@link ConfigurationOptions#pathSeparator() path separator} of the
+     * configurations it is used with
+     *
+     * @param path Path to compile
+     * @param separator Separator between the keys of the path
+     */
+    public ConfigPath(String path, char separator) {
+        Validate.notEmpty(path, "Path cannot be empty");
+        this.path = path;
+        this.separator = separator;
+
+        List<String> keys = new ArrayList<String>();
+        int i1 = -1, i2;
+        while ((i1 = path.indexOf(separator, i2 = i1 + 1)) != -1) {
+            keys.add(path.substring(i2, i1).intern());
+        }
+        keys.add(path.substring(i2).intern());
+        this.keys = keys.toArray(new String[keys.size()]);
+    }
+
+    /**
+     * Gets the path this was compiled from
+     *
+     * @return Path as a string
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the separator between the keys of this path
+     *
+     * @return Path separator
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Gets the object at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested object
+     * @see ConfigurationSection#get(String)
+     */
+    public Object get(ConfigurationSection section) {
+        Object val = find(section);
+        return val != null ? val : findDefault(section);
+    }
+
+    /**
+     * Gets the object at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set
+     * @return Requested object
+     * @see ConfigurationSection#get(String, Object)
+     */
+    public Object get(ConfigurationSection section, Object def) {
+        Object val = find(section);
+        return val != null ? val : def;
+    }
+
+    /**
+     * Gets the string at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested string
+     * @see ConfigurationSection#getString(String)
+     */
+    public String getString(ConfigurationSection section) {
+        Object val = find(section);
+        if (val == null) {
+            val = findDefault(section);
+        }
+        return val != null ? val.toString() : null;
+    }
+
+    /**
+     * Gets the string at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set
+     * @return Requested string
+     * @see ConfigurationSection#getString(String, String)
+     */
+    public String getString(ConfigurationSection section, String def) {
+        Object val = find(section);
+        return val != null ? val.toString() : def;
+    }
+
+    /**
+     * Gets the int at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested int
+     * @see ConfigurationSection#getInt(String)
+     */
+    public int getInt(ConfigurationSection section) {
+        Object val = find(section);
+        if (!(val instanceof Number)) {
+            val = findDefault(section);
+        }
+        return (val instanceof Number) ? ((Number) val).intValue() : 0;
+    }
+
+    /**
+     * Gets the int at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set to a number
+     * @return Requested int
+     * @see ConfigurationSection#getInt(String, int)
+     */
+    public int getInt(ConfigurationSection section, int def) {
+        Object val = find(section);
+        return (val instanceof Number) ? ((Number) val).intValue() : def;
+    }
+
+    /**
+     * Gets the boolean at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested boolean
+     * @see ConfigurationSection#getBoolean(String)
+     */
+    public boolean getBoolean(ConfigurationSection section) {
+        Object val = find(section);
+        if (!(val instanceof Boolean)) {
+            val = findDefault(section);
+        }
+        return (val instanceof Boolean) ? (Boolean) val : false;
+    }
+
+    /**
+     * Gets the boolean at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set to a boolean
+     * @return Requested boolean
+     * @see ConfigurationSection#getBoolean(String, boolean)
+     */
+    public boolean getBoolean(ConfigurationSection section, boolean def) {
+        Object val = find(section);
+        return (val instanceof Boolean) ? (Boolean) val : def;
+    }
+
+    /**
+     * Gets the double at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested double
+     * @see ConfigurationSection#getDouble(String)
+     */
+    public double getDouble(ConfigurationSection section) {
+        Object val = find(section);
+        if (!(val instanceof Number)) {
+            val = findDefault(section);
+        }
+        return (val instanceof Number) ? ((Number) val).doubleValue() : 0;
+    }
+
+    /**
+     * Gets the double at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set to a number
+     * @return Requested double
+     * @see ConfigurationSection#getDouble(String, double)
+     */
+    public double getDouble(ConfigurationSection section, double def) {
+        Object val = find(section);
+        return (val instanceof Number) ? ((Number) val).doubleValue() : def;
+    }
+
+    /**
+     * Gets the long at this path, or its default value
+     *
+     * @param section Section to look the path up in
+     * @return Requested long
+     * @see ConfigurationSection#getLong(String)
+     */
+    public long getLong(ConfigurationSection section) {
+        Object val = find(section);
+        if (!(val instanceof Number)) {
+            val = findDefault(section);
+        }
+        return (val instanceof Number) ? ((Number) val).longValue() : 0;
+    }
+
+    /**
+     * Gets the long at this path, or the given default
+     *
+     * @param section Section to look the path up in
+     * @param def Value to return if the path is not set to a number
+     * @return Requested long
+     * @see ConfigurationSection#getLong(String, long)
+     */
+    public long getLong(ConfigurationSection section, long def) {
+        Object val = find(section);
+        return (val instanceof Number) ? ((Number) val).longValue() : def;
+    }
+
+    /**
+     * Walks the keys of this path from the given section, ignoring defaults
+     */
+    private Object find(ConfigurationSection section) {
+        Validate.notNull(section, "Section cannot be null");
+        Configuration root = section.getRoot();
+        if (root == null) {
+            throw new IllegalStateException("Cannot access section without a root");
+        }
+        if (root.options().pathSeparator() != separator) {
+            throw new IllegalArgumentException("Path `" + path + "' was compiled for separator '" + separator + "', not '" + root.options().pathSeparator() + "'");
+        }
+
+        Object current = section;
+        for (String key : keys) {
+            if (current instanceof MemorySection) {
+                current = ((MemorySection) current).map.get(key);
+            } else if (current instanceof ConfigurationSection) {
+                current = ((ConfigurationSection) current).get(key, null);
+            } else {
+                return null;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Looks this path up in the defaults of the root of the given section
+     */
+    private Object findDefault(ConfigurationSection section) {
+        Configuration root = section.getRoot();
+        Configuration defaults = root == null ? null : root.getDefaults();
+        if (defaults == null) {
+            return null;
+        } else if (section == root) {
+            return get(defaults);
+        }
+        return defaults.get(MemorySection.createPath(section, path));
+    }
+}
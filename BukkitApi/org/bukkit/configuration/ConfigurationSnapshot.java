@@ -0,0 +1,382 @@
+package org.bukkit.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * An immutable copy of the values of a {@link Configuration}, with its
+ * defaults merged in, for configurations which are loaded once and then
+ * only read
+ * <p>
+ * Every value is stored under its full path in a single open addressing
+ * table, so a read is one hash probe however deep the path is. Integral and
+ * floating point numbers and booleans are also stored unboxed, so the typed
+ * getters neither box nor unbox. A snapshot never changes, and may be read
+ * from any thread without locking.
+ * <p>
+ * Paths which the configuration does not set resolve to their default
+ * value, like the getters of {@link ConfigurationSection} which take no
+ * default. Lists and maps, including those nested in them, are copied into
+ * unmodifiable ones, so later changes to the configuration never show
+ * through. Other values, such as {@link org.bukkit.inventory.ItemStack}s,
+ * are shared with the configuration and must not be modified.
+ */
+public final class ConfigurationSnapshot {
+    private static final byte OBJECT = 0;
+    private static final byte SECTION = 1;
+    private static final byte INTEGRAL = 2;
+    private static final byte FLOATING = 3;
+    private static final byte BOOLEAN = 4;
+
+    private final char separator;
+    private final Set<String> keys;
+    private final String[] paths;
+    private final int[] hashes;
+    private final byte[] kinds;
+    private final long[] primitives;
+    private final Object[] values;
+
+    /**
+     * Creates a snapshot of the current values of a configuration, with its
+     * defaults merged in
+     * <p>
+     * Later changes to the configuration do not affect the snapshot.
+     *
+     * @param configuration Configuration to copy
+     * @return Snapshot of the configuration
+     * @throws IllegalArgumentException If the configuration is null
+     */
+    public static ConfigurationSnapshot of(Configuration configuration) {
+        return new ConfigurationSnapshot(configuration);
+    }
+
+    private ConfigurationSnapshot(Configuration configuration) {
+        Validate.notNull(configuration, "Configuration cannot be null");
+        this.separator = configuration.options().pathSeparator();
+
+        Map<String, Object> flattened = new LinkedHashMap<String, Object>();
+        flatten(configuration, flattened);
+        this.keys = Collections.unmodifiableSet(new LinkedHashSet<String>(flattened.keySet()));
+
+        int capacity = Integer.highestOneBit(Math.max(flattened.size(), 1) * 2) * 2;
+        paths = new String[capacity];
+        hashes = new int[capacity];
+        kinds = new byte[capacity];
+        primitives = new long[capacity];
+        values = new Object[capacity];
+
+        for (Map.Entry<String, Object> entry : flattened.entrySet()) {
+            String path = entry.getKey();
+            int hash = mix(path.hashCode());
+            int slot = hash & (capacity - 1);
+            while (paths[slot] != null) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+
+            Object value = entry.getValue();
+            paths[slot] = path;
+            hashes[slot] = hash;
+            if (value instanceof ConfigurationSection) {
+                kinds[slot] = SECTION;
+            } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                kinds[slot] = INTEGRAL;
+                primitives[slot] = ((Number) value).longValue();
+                values[slot] = value;
+            } else if (value instanceof Double || value instanceof Float) {
+                kinds[slot] = FLOATING;
+                primitives[slot] = Double.doubleToRawLongBits(((Number) value).doubleValue());
+                values[slot] = value;
+            } else if (value instanceof Boolean) {
+                kinds[slot] = BOOLEAN;
+                primitives[slot] = (Boolean) value ? 1 : 0;
+                values[slot] = value;
+            } else if (value instanceof List || value instanceof Map) {
+                kinds[slot] = OBJECT;
+                values[slot] = copy(value);
+            } else {
+                kinds[slot] = OBJECT;
+                values[slot] = value;
+            }
+        }
+    }
+
+    /**
+     * Collects the values of a configuration by full path, on top of those
+     * of its defaults
+     */
+    private static void flatten(Configuration configuration, Map<String, Object> output) {
+        Configuration defaults = configuration.getDefaults();
+        if (defaults != null && defaults != configuration) {
+            flatten(defaults, output);
+        }
+        output.putAll(configuration.getValues(true));
+    }
+
+    /**
+     * Copies lists and maps, and the lists and maps in them, into
+     * unmodifiable ones
+     */
+    private static Object copy(Object value) {
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            List<Object> copy = new ArrayList<Object>(list.size());
+            for (Object element : list) {
+                copy.add(copy(element));
+            }
+            return Collections.unmodifiableList(copy);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<Object, Object> copy = new LinkedHashMap<Object, Object>(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private int find(String path) {
+        Validate.notNull(path, "Path cannot be null");
+        int hash = mix(path.hashCode());
+        int mask = paths.length - 1;
+        for (int slot = hash & mask; paths[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && paths[slot].equals(path)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the separator of the paths in this snapshot
+     *
+     * @return Path separator of the configuration
+     */
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * Gets the full paths of every value and section in this snapshot
+     *
+     * @return Unmodifiable set of paths, sections before their contents
+     */
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    /**
+     * Gets the number of values and sections in this snapshot
+     *
+     * @return Number of paths
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Checks if this snapshot contains a value or section at a path
+     *
+     * @param path Full path to check
+     * @return true if the path is set
+     */
+    public boolean contains(String path) {
+        return find(path) >= 0;
+    }
+
+    /**
+     * Checks if a path of this snapshot is a section
+     *
+     * @param path Full path to check
+     * @return true if the path holds a section
+     */
+    public boolean isSection(String path) {
+        int slot = find(path);
+        return slot >= 0 && kinds[slot] == SECTION;
+    }
+
+    /**
+     * Gets the value at a path
+     *
+     * @param path Full path of the value
+     * @return Value, or null if the path is not set or is a section
+     */
+    public Object get(String path) {
+        int slot = find(path);
+        return slot < 0 ? null : values[slot];
+    }
+
+    /**
+     * Gets the value at a path, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not set or is a section
+     * @return Value
+     */
+    public Object get(String path, Object def) {
+        int slot = find(path);
+        return slot < 0 || values[slot] == null ? def : values[slot];
+    }
+
+    /**
+     * Gets the value at a path as a string
+     *
+     * @param path Full path of the value
+     * @return String value, or null if the path is not set or is a section
+     */
+    public String getString(String path) {
+        return getString(path, null);
+    }
+
+    /**
+     * Gets the value at a path as a string, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not set or is a section
+     * @return String value
+     */
+    public String getString(String path, String def) {
+        Object val = get(path, null);
+        return val != null ? val.toString() : def;
+    }
+
+    /**
+     * Gets the number at a path as an int
+     *
+     * @param path Full path of the value
+     * @return Value, or 0 if the path is not a number
+     */
+    public int getInt(String path) {
+        return getInt(path, 0);
+    }
+
+    /**
+     * Gets the number at a path as an int, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not a number
+     * @return Value
+     */
+    public int getInt(String path, int def) {
+        int slot = find(path);
+        if (slot < 0) {
+            return def;
+        }
+        switch (kinds[slot]) {
+        case INTEGRAL:
+            return (int) primitives[slot];
+        case FLOATING:
+            return (int) Double.longBitsToDouble(primitives[slot]);
+        default:
+            return (values[slot] instanceof Number) ? ((Number) values[slot]).intValue() : def;
+        }
+    }
+
+    /**
+     * Gets the number at a path as a long
+     *
+     * @param path Full path of the value
+     * @return Value, or 0 if the path is not a number
+     */
+    public long getLong(String path) {
+        return getLong(path, 0);
+    }
+
+    /**
+     * Gets the number at a path as a long, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not a number
+     * @return Value
+     */
+    public long getLong(String path, long def) {
+        int slot = find(path);
+        if (slot < 0) {
+            return def;
+        }
+        switch (kinds[slot]) {
+        case INTEGRAL:
+            return primitives[slot];
+        case FLOATING:
+            return (long) Double.longBitsToDouble(primitives[slot]);
+        default:
+            return (values[slot] instanceof Number) ? ((Number) values[slot]).longValue() : def;
+        }
+    }
+
+    /**
+     * Gets the number at a path as a double
+     *
+     * @param path Full path of the value
+     * @return Value, or 0 if the path is not a number
+     */
+    public double getDouble(String path) {
+        return getDouble(path, 0);
+    }
+
+    /**
+     * Gets the number at a path as a double, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not a number
+     * @return Value
+     */
+    public double getDouble(String path, double def) {
+        int slot = find(path);
+        if (slot < 0) {
+            return def;
+        }
+        switch (kinds[slot]) {
+        case INTEGRAL:
+            return primitives[slot];
+        case FLOATING:
+            return Double.longBitsToDouble(primitives[slot]);
+        default:
+            return (values[slot] instanceof Number) ? ((Number) values[slot]).doubleValue() : def;
+        }
+    }
+
+    /**
+     * Gets the boolean at a path
+     *
+     * @param path Full path of the value
+     * @return Value, or false if the path is not a boolean
+     */
+    public boolean getBoolean(String path) {
+        return getBoolean(path, false);
+    }
+
+    /**
+     * Gets the boolean at a path, or the given default
+     *
+     * @param path Full path of the value
+     * @param def Value to return if the path is not a boolean
+     * @return Value
+     */
+    public boolean getBoolean(String path, boolean def) {
+        int slot = find(path);
+        return slot >= 0 && kinds[slot] == BOOLEAN ? primitives[slot] != 0 : def;
+    }
+
+    /**
+     * Gets the list at a path
+     *
+     * @param path Full path of the value
+     * @return Unmodifiable list, or null if the path is not a list
+     */
+    public List<?> getList(String path) {
+        Object val = get(path);
+        return (val instanceof List) ? (List<?>) val : null;
+    }
+}
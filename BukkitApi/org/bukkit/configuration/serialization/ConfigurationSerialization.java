@@ -4,8 +4,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,7 +26,7 @@ import org.bukkit.util.Vector;
 public class ConfigurationSerialization {
     public static final String SERIALIZED_TYPE_KEY = "==";
     private final Class<? extends ConfigurationSerializable> clazz;
-    private static Map<String, Class<? extends ConfigurationSerializable>> aliases = new HashMap<String, Class<? extends ConfigurationSerializable>>();
+    private static Map<String, Class<? extends ConfigurationSerializable>> aliases = new ConcurrentHashMap<String, Class<? extends ConfigurationSerializable>>();
 
     static {
         registerClass(Vector.class);
@@ -216,9 +216,12 @@ public class ConfigurationSerialization {
      *
      * @param clazz Class to register
      * @param alias Alias to register as
+     * @throws IllegalArgumentException if the class or alias is null
      * @see SerializableAs
      */
     public static void registerClass(Class<? extends ConfigurationSerializable> clazz, String alias) {
+        Validate.notNull(clazz, "Class cannot be null");
+        Validate.notNull(alias, "Alias cannot be null");
         aliases.put(alias, clazz);
     }
 
@@ -228,7 +231,9 @@ public class ConfigurationSerialization {
      * @param alias Alias to unregister
      */
     public static void unregisterClass(String alias) {
-        aliases.remove(alias);
+        if (alias != null) {
+            aliases.remove(alias);
+        }
     }
 
     /**
@@ -251,7 +256,7 @@ public class ConfigurationSerialization {
      * @return Registered class, or null if not found
      */
     public static Class<? extends ConfigurationSerializable> getClassByAlias(String alias) {
-        return aliases.get(alias);
+        return alias == null ? null : aliases.get(alias);
     }
 
     /**
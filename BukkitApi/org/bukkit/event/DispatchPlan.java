@@ -0,0 +1,278 @@
+package org.bukkit.event;
+
+import org.bukkit.plugin.BatchEventExecutor;
+import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.plugin.TimedRegisteredListener;
+
+/**
+ * An immutable, pre-sorted list of the listeners an event is passed to,
+ * returned by {@link HandlerList#getDispatchPlan()}
+ * <p>
+ * A plan is built lazily from the handler list's current listeners the first
+ * time it is asked for after a change, and is then shared until the next
+ * registration or unregistration.
+ * <p>
+ * Consecutive listeners that treat cancellation the same way are grouped
+ * into runs, so that dispatching only checks {@link Cancellable#isCancelled()}
+ * where a listener actually ignores cancelled events. Listeners of plugins
+ * which are not {@link Plugin#isEnabled() enabled} are skipped when an event
+ * is dispatched, so a plan stays valid while plugins are enabled and
+ * disabled.
+ */
+public final class DispatchPlan {
+    /**
+     * Listeners in the run receive every event
+     */
+    private static final byte DIRECT = 0;
+    /**
+     * Listeners in the run skip events that are already cancelled
+     */
+    private static final byte UNLESS_CANCELLED = 1;
+    /**
+     * Listeners in the run override {@link RegisteredListener#callEvent(Event)}
+     * and are called through it
+     */
+    private static final byte DELEGATE = 2;
+
+    static final DispatchPlan EMPTY = new DispatchPlan(new RegisteredListener[0]);
+
+    private final RegisteredListener[] registrations;
+    private final Plugin[] plugins;
+    private final Listener[] listeners;
+    private final EventExecutor[] executors;
+    private final BatchEventExecutor[] batchExecutors;
+    private final int[] runEnds;
+    private final byte[] runModes;
+
+    /**
+     * Receives the exceptions thrown by listeners during
+     * {@link DispatchPlan#dispatch(Event, ErrorHandler)}
+     */
+    public interface ErrorHandler {
+
+        /**
+         * Handles an exception thrown while passing an event to a listener
+         *
+         * @param registration The listener that failed
+         * @param event The event being dispatched
+         * @param ex The exception thrown
+         */
+        public void handle(RegisteredListener registration, Event event, Throwable ex);
+    }
+
+    /**
+     * Builds a plan from listeners already sorted by priority
+     *
+     * @param sorted Listeners sorted by priority
+     */
+    DispatchPlan(RegisteredListener[] sorted) {
+        int size = sorted.length;
+        registrations = sorted.clone();
+        plugins = new Plugin[size];
+        listeners = new Listener[size];
+        executors = new EventExecutor[size];
+        batchExecutors = new BatchEventExecutor[size];
+
+        int[] ends = new int[size];
+        byte[] modes = new byte[size];
+        int runs = 0;
+        for (int i = 0; i < size; i++) {
+            RegisteredListener registration = registrations[i];
+            plugins[i] = registration.getPlugin();
+            listeners[i] = registration.getListener();
+            executors[i] = registration.getExecutor();
+            if (executors[i] instanceof BatchEventExecutor) {
+                batchExecutors[i] = (BatchEventExecutor) executors[i];
+            }
+
+            byte mode;
+            if (registration.getClass() != RegisteredListener.class) {
+                mode = DELEGATE;
+            } else if (registration.isIgnoringCancelled()) {
+                mode = UNLESS_CANCELLED;
+            } else {
+                mode = DIRECT;
+            }
+
+            if (runs == 0 || modes[runs - 1] != mode) {
+                modes[runs++] = mode;
+            }
+            ends[runs - 1] = i + 1;
+        }
+
+        runEnds = new int[runs];
+        runModes = new byte[runs];
+        System.arraycopy(ends, 0, runEnds, 0, runs);
+        System.arraycopy(modes, 0, runModes, 0, runs);
+    }
+
+    /**
+     * Checks if no listener would receive an event dispatched through this
+     * plan
+     *
+     * @return true if the plan has no listeners
+     */
+    public boolean isEmpty() {
+        return registrations.length == 0;
+    }
+
+    /**
+     * Gets the number of listeners in this plan
+     *
+     * @return Number of listeners
+     */
+    public int size() {
+        return registrations.length;
+    }
+
+    /**
+     * Gets the listeners of this plan, in the order they are called
+     *
+     * @return A copy of the planned listeners
+     */
+    public RegisteredListener[] getListeners() {
+        return registrations.clone();
+    }
+
+    /**
+     * Passes an event to every listener of this plan in order
+     * <p>
+     * An exception thrown by a listener is given to the error handler and
+     * does not stop the event reaching the remaining listeners.
+     *
+     * @param event The event to dispatch
+     * @param errorHandler Handler for exceptions thrown by listeners
+     */
+    public void dispatch(Event event, ErrorHandler errorHandler) {
+        Cancellable cancellable = event instanceof Cancellable ? (Cancellable) event : null;
+        int i = 0;
+
+        for (int run = 0; run < runEnds.length; run++) {
+            int end = runEnds[run];
+
+            switch (runModes[run]) {
+            case DIRECT:
+                for (; i < end; i++) {
+                    if (!plugins[i].isEnabled()) {
+                        continue;
+                    }
+                    try {
+                        executors[i].execute(listeners[i], event);
+                    } catch (Throwable ex) {
+                        errorHandler.handle(registrations[i], event, ex);
+                    }
+                }
+                break;
+            case UNLESS_CANCELLED:
+                for (; i < end; i++) {
+                    if (!plugins[i].isEnabled() || (cancellable != null && cancellable.isCancelled())) {
+                        continue;
+                    }
+                    try {
+                        executors[i].execute(listeners[i], event);
+                    } catch (Throwable ex) {
+                        errorHandler.handle(registrations[i], event, ex);
+                    }
+                }
+                break;
+            default:
+                for (; i < end; i++) {
+                    if (!plugins[i].isEnabled()) {
+                        continue;
+                    }
+                    try {
+                        registrations[i].callEvent(event);
+                    } catch (Throwable ex) {
+                        errorHandler.handle(registrations[i], event, ex);
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Passes a batch of events through this plan, one listener at a time
+     * <p>
+     * Each listener, in priority order, receives every event of the batch
+     * before the next listener receives any. Listeners registered with a
+     * {@link BatchEventExecutor} receive the batch in a single call, also
+     * when they are timed through a {@link TimedRegisteredListener}. An
+     * exception thrown by a listener is given to the error handler, along
+     * with the first event the listener was handling.
+     *
+     * @param events The events to dispatch, all using this plan
+     * @param errorHandler Handler for exceptions thrown by listeners
+     */
+    public void dispatchBatch(Event[] events, ErrorHandler errorHandler) {
+        int i = 0;
+
+        for (int run = 0; run < runEnds.length; run++) {
+            int end = runEnds[run];
+            byte mode = runModes[run];
+
+            for (; i < end; i++) {
+                if (!plugins[i].isEnabled()) {
+                    continue;
+                } else if (mode == DELEGATE && batchExecutors[i] != null && registrations[i] instanceof TimedRegisteredListener) {
+                    try {
+                        ((TimedRegisteredListener) registrations[i]).callEvents(events);
+                    } catch (Throwable ex) {
+                        errorHandler.handle(registrations[i], events[0], ex);
+                    }
+                } else if (mode == DELEGATE) {
+                    for (Event event : events) {
+                        try {
+                            registrations[i].callEvent(event);
+                        } catch (Throwable ex) {
+                            errorHandler.handle(registrations[i], event, ex);
+                        }
+                    }
+                } else if (batchExecutors[i] != null) {
+                    Event[] batch = mode == UNLESS_CANCELLED ? withoutCancelled(events) : events;
+                    if (batch.length == 0) {
+                        continue;
+                    }
+                    try {
+                        batchExecutors[i].execute(listeners[i], batch);
+                    } catch (Throwable ex) {
+                        errorHandler.handle(registrations[i], batch[0], ex);
+                    }
+                } else {
+                    for (Event event : events) {
+                        if (mode == UNLESS_CANCELLED && event instanceof Cancellable && ((Cancellable) event).isCancelled()) {
+                            continue;
+                        }
+                        try {
+                            executors[i].execute(listeners[i], event);
+                        } catch (Throwable ex) {
+                            errorHandler.handle(registrations[i], event, ex);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static Event[] withoutCancelled(Event[] events) {
+        int kept = 0;
+        for (Event event : events) {
+            if (!(event instanceof Cancellable) || !((Cancellable) event).isCancelled()) {
+                kept++;
+            }
+        }
+        if (kept == events.length) {
+            return events;
+        }
+        Event[] batch = new Event[kept];
+        kept = 0;
+        for (Event event : events) {
+            if (!(event instanceof Cancellable) || !((Cancellable) event).isCancelled()) {
+                batch[kept++] = event;
+            }
+        }
+        return batch;
+    }
+}
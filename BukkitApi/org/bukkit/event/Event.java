@@ -19,6 +19,26 @@ import org.bukkit.plugin.PluginManager;
         return handlers;
     }
  * </pre>
+ * <p>
+ * 频繁触发的事件还应提供一个静态的 hasListeners() 方法, 返回 {@link HandlerList#hasListeners()}
+ * 的结果, 这样调用者可以在没有任何监听器时跳过事件对象的创建.
+ * 与 getHandlerList() 一样, 拥有自己的 HandlerList 的子类必须重新声明此方法:
+ * <pre>
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
+
+    // 调用者:
+    if (PlayerMoveEvent.hasListeners()) {
+        pluginManager.callEvent(new PlayerMoveEvent(player, from, to));
+    }
+ * </pre>
+ * <p>
+ * 原文：Events which are called very often should also provide a static
+ * hasListeners() method returning the result of {@link
+ * HandlerList#hasListeners()}, so callers can skip constructing the event
+ * when nobody listens. Like getHandlerList(), it must be declared again by
+ * subclasses which have their own HandlerList.
  *
  * @see PluginManager#callEvent(Event)
  * @see PluginManager#registerEvents(Listener,Plugin)
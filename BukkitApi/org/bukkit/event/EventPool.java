@@ -0,0 +1,115 @@
+package org.bukkit.event;
+
+import java.util.ArrayDeque;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A per-thread pool of reusable event instances
+ * <p>
+ * Instead of allocating a new event for every occurrence, a caller takes an
+ * instance with {@link #acquire()}, resets it to the new state, calls it and
+ * hands it back with {@link #release(Event)}:
+ * <pre>
+ * PlayerMoveEvent event = movePool.acquire();
+ * try {
+ *     event.reset(player, from, to);
+ *     pluginManager.callEvent(event);
+ *     // read the results
+ * } finally {
+ *     movePool.release(event);
+ * }
+ * </pre>
+ * Every thread has its own instances, so a pool can be shared between
+ * threads without locking. An event must be released on the thread that
+ * acquired it, and only after every listener has finished with it.
+ * <p>
+ * In debug mode released instances are never reused, so a listener which
+ * kept a reference fails with an {@link IllegalStateException} the next time
+ * it touches the event, pointing at the offending code.
+ *
+ * @param <T> Type of the pooled event
+ */
+public abstract class EventPool<T extends Event & PooledEvent> {
+    private final int capacity;
+    private volatile boolean debug = false;
+    private final ThreadLocal<ArrayDeque<T>> pools = new ThreadLocal<ArrayDeque<T>>() {
+        @Override
+        protected ArrayDeque<T> initialValue() {
+            return new ArrayDeque<T>();
+        }
+    };
+
+    /**
+     * Creates a pool keeping at most the given number of idle instances per
+     * thread
+     *
+     * @param capacity Maximum number of idle instances per thread
+     */
+    protected EventPool(int capacity) {
+        Validate.isTrue(capacity > 0, "Capacity must be positive");
+        this.capacity = capacity;
+    }
+
+    /**
+     * Creates a new instance for this pool
+     * <p>
+     * The instance is reset by the caller before use, so its initial state
+     * does not matter.
+     *
+     * @return A new event
+     */
+    protected abstract T create();
+
+    /**
+     * Takes an idle instance from the current thread's pool, or creates one
+     * if there is none
+     *
+     * @return An event to be reset by the caller
+     */
+    public T acquire() {
+        T event = pools.get().pollLast();
+        if (event == null) {
+            event = create();
+        }
+        event.setReleased(false);
+        return event;
+    }
+
+    /**
+     * Returns an instance to the current thread's pool
+     *
+     * @param event An event taken from this pool with {@link #acquire()}
+     */
+    public void release(T event) {
+        Validate.notNull(event, "Event cannot be null");
+        if (event.isReleased()) {
+            throw new IllegalStateException(event.getEventName() + " was already released");
+        }
+        event.setReleased(true);
+
+        ArrayDeque<T> pool = pools.get();
+        if (!debug && pool.size() < capacity) {
+            pool.addLast(event);
+        }
+    }
+
+    /**
+     * Sets whether this pool is in debug mode, in which released instances
+     * are never reused
+     *
+     * @param debug true to enable debug mode
+     */
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Checks if this pool is in debug mode
+     *
+     * @return true if released instances are never reused
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+}
@@ -4,46 +4,57 @@ import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.RegisteredListener;
 
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 一个处理事件的类, 存储每个事件。基于 lahwran's fevents.
+ * <p>
+ * 所有改动都会发布一个新的不可变快照, 读取者永远不需要加锁或等待.
+ * <p>
+ * 原文：Every change publishes a new immutable snapshot, readers never lock
+ * or wait.
  */
 public class HandlerList {
 
     /**
-     * 包含了所有HandlerList的数组.此数组字段是这个系统速度的关键.
-     */
-    private volatile RegisteredListener[] handlers = null;
-
-    /**
-     * 动态HandlerList.使用register()和unreguster()进行改动，当有任何改动的时候自动bake(合并)HandlerList.
+     * 当前的快照, 包含按优先级排序的监听器, 合并(bake)后的数组和调度计划.此字段是这个系统速度的关键.
+     * 只在持有index锁时写入.
      * <p>
      * 译注:“bake”的意思是“烤”，但意思根本对不上，根据源代码来分析大概是“合并”，或者“拷贝” 下方出现的“bake”同.一般情况下这个字段的意义我们是不需要理解的.如果你知道其真正意义请告知我们.
      * <p>
-     * 原文：Dynamic handler lists. These are changed using register() and
-     * unregister() and are automatically baked to the handlers array any time
-     * they have changed.
+     * 原文：The current snapshot, holding the listeners by priority, the baked
+     * array and the dispatch plan. This field is the key to the speed of this
+     * system. It is only written while holding the index lock.
      */
-    private final EnumMap<EventPriority, ArrayList<RegisteredListener>> handlerslots;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
     /**
      * 所有已经创建的HandlerList,用于bakeAll().
      */
-    private static ArrayList<HandlerList> allLists = new ArrayList<HandlerList>();
+    private static final List<HandlerList> allLists = new CopyOnWriteArrayList<HandlerList>();
+
+    /**
+     * 从插件和监听器到其注册的反向索引, 使按插件或监听器注销只需处理它们自己的注册.
+     * 所有写入操作都在此对象上同步, 读取快照时则不需要.
+     * <p>
+     * 原文：Reverse index from plugins and listeners to their registrations, so
+     * unregistering by plugin or listener only touches their own registrations.
+     * All writes synchronize on this object, reading a snapshot does not.
+     */
+    private static final ListenerIndex index = new ListenerIndex();
 
     /**
      * 合并(bake)所有处理器列表.最好用在所有正常的事件注册完毕后,即所有插件都加载完了,如果你使用fevents插件系统.
      * <p>
+     * 译注:现在每次改动都会立即合并, 此方法只为兼容而保留.
+     * <p>
      * 原文：Bake all handler lists. Best used just after all normal event
      * registration is complete, ie just after all plugins are loaded if
      * you're using fevents in a plugin system.
      */
     public static void bakeAll() {
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                h.bake();
-            }
+        for (HandlerList h : allLists) {
+            h.bake();
         }
     }
 
@@ -53,15 +64,11 @@ public class HandlerList {
      * 原文：Unregister all listeners from all handler lists.
      */
     public static void unregisterAll() {
-        synchronized (allLists) {
+        synchronized (index) {
             for (HandlerList h : allLists) {
-                synchronized (h) {
-                    for (List<RegisteredListener> list : h.handlerslots.values()) {
-                        list.clear();
-                    }
-                    h.handlers = null;
-                }
+                h.snapshot = Snapshot.EMPTY;
             }
+            index.clear();
         }
     }
 
@@ -73,9 +80,9 @@ public class HandlerList {
      * @param plugin 要注销监听器的插件
      */
     public static void unregisterAll(Plugin plugin) {
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                h.unregister(plugin);
+        synchronized (index) {
+            for (Map.Entry<HandlerList, Set<RegisteredListener>> entry : index.get(plugin).entrySet()) {
+                entry.getKey().removeAll(entry.getValue());
             }
         }
     }
@@ -88,9 +95,9 @@ public class HandlerList {
      * @param listener 要注销的监听器
      */
     public static void unregisterAll(Listener listener) {
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                h.unregister(listener);
+        synchronized (index) {
+            for (Map.Entry<HandlerList, Set<RegisteredListener>> entry : index.get(listener).entrySet()) {
+                entry.getKey().removeAll(entry.getValue());
             }
         }
     }
@@ -105,13 +112,7 @@ public class HandlerList {
      * The HandlerList is then added to meta-list for use in bakeAll()
      */
     public HandlerList() {
-        handlerslots = new EnumMap<EventPriority, ArrayList<RegisteredListener>>(EventPriority.class);
-        for (EventPriority o : EventPriority.values()) {
-            handlerslots.put(o, new ArrayList<RegisteredListener>());
-        }
-        synchronized (allLists) {
-            allLists.add(this);
-        }
+        allLists.add(this);
     }
 
     /**
@@ -121,11 +122,8 @@ public class HandlerList {
      *
      * @param listener 要注册的监听器
      */
-    public synchronized void register(RegisteredListener listener) {
-        if (handlerslots.get(listener.getPriority()).contains(listener))
-            throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
-        handlers = null;
-        handlerslots.get(listener.getPriority()).add(listener);
+    public void register(RegisteredListener listener) {
+        registerAll(Collections.singletonList(listener));
     }
 
     /**
@@ -136,23 +134,49 @@ public class HandlerList {
      * @param listeners 要注册的监听器
      */
     public void registerAll(Collection<RegisteredListener> listeners) {
+        if (listeners.isEmpty()) return;
+        synchronized (index) {
+            publishAdded(listeners);
+            for (RegisteredListener listener : listeners) {
+                index.add(this, listener);
+            }
+        }
+    }
+
+    /**
+     * 发布一个加入了给定注册的新快照. 调用时必须持有index锁.
+     * <p>
+     * 原文：Publishes a snapshot with the given registrations added. Must be
+     * called while holding the index lock.
+     */
+    private void publishAdded(Collection<RegisteredListener> listeners) {
+        RegisteredListener[][] slots = snapshot.copySlots();
         for (RegisteredListener listener : listeners) {
-            register(listener);
+            int priority = listener.getPriority().ordinal();
+            RegisteredListener[] slot = slots[priority];
+            for (RegisteredListener existing : slot) {
+                if (existing.equals(listener))
+                    throw new IllegalStateException("This listener is already registered to priority " + listener.getPriority().toString());
+            }
+            slot = Arrays.copyOf(slot, slot.length + 1);
+            slot[slot.length - 1] = listener;
+            slots[priority] = slot;
         }
+        snapshot = new Snapshot(slots);
     }
 
     /**
      * 从一个指定的排序的插槽删除一个监听器.
      * <p>
-     * 译注：“插槽”的意思见本类的handlerslots变量.
+     * 译注：“插槽”的意思是按优先级分开存放监听器的位置.
      * <p>
      * 原文：Remove a listener from a specific order slot
      *
      * @param listener 要移除的监听器
      */
-    public synchronized void unregister(RegisteredListener listener) {
-        if (handlerslots.get(listener.getPriority()).remove(listener)) {
-            handlers = null;
+    public void unregister(RegisteredListener listener) {
+        synchronized (index) {
+            removeAll(Collections.singleton(listener));
         }
     }
 
@@ -163,17 +187,11 @@ public class HandlerList {
      *
      * @param plugin 要移除监听器的插件
      */
-    public synchronized void unregister(Plugin plugin) {
-        boolean changed = false;
-        for (List<RegisteredListener> list : handlerslots.values()) {
-            for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
-                if (i.next().getPlugin().equals(plugin)) {
-                    i.remove();
-                    changed = true;
-                }
-            }
+    public void unregister(Plugin plugin) {
+        synchronized (index) {
+            Set<RegisteredListener> registrations = index.get(plugin).get(this);
+            if (registrations != null) removeAll(registrations);
         }
-        if (changed) handlers = null;
     }
 
     /**
@@ -183,31 +201,58 @@ public class HandlerList {
      *
      * @param listener 要移除的监听器
      */
-    public synchronized void unregister(Listener listener) {
-        boolean changed = false;
-        for (List<RegisteredListener> list : handlerslots.values()) {
-            for (ListIterator<RegisteredListener> i = list.listIterator(); i.hasNext();) {
-                if (i.next().getListener().equals(listener)) {
-                    i.remove();
-                    changed = true;
+    public void unregister(Listener listener) {
+        synchronized (index) {
+            Set<RegisteredListener> registrations = index.get(listener).get(this);
+            if (registrations != null) removeAll(registrations);
+        }
+    }
+
+    /**
+     * 发布一个移除了给定注册的新快照, 并将它们从索引中移除. 调用时必须持有index锁.
+     * <p>
+     * 原文：Publishes a snapshot without the given registrations and removes
+     * them from the index. Must be called while holding the index lock.
+     */
+    private void removeAll(Collection<RegisteredListener> registrations) {
+        Set<RegisteredListener> targets = new HashSet<RegisteredListener>(registrations);
+        Snapshot current = snapshot;
+        RegisteredListener[][] slots = null;
+        for (int priority = 0; priority < current.slots.length; priority++) {
+            RegisteredListener[] slot = current.slots[priority];
+            List<RegisteredListener> kept = null;
+            for (int i = 0; i < slot.length; i++) {
+                boolean matches = targets.contains(slot[i]);
+                if (matches && kept == null) {
+                    kept = new ArrayList<RegisteredListener>(slot.length - 1);
+                    kept.addAll(Arrays.asList(slot).subList(0, i));
+                } else if (!matches && kept != null) {
+                    kept.add(slot[i]);
                 }
             }
+            if (kept != null) {
+                if (slots == null) slots = current.copySlots();
+                slots[priority] = kept.toArray(new RegisteredListener[kept.size()]);
+            }
+        }
+        if (slots != null) {
+            snapshot = new Snapshot(slots);
+        }
+
+        for (RegisteredListener registration : targets) {
+            index.remove(this, registration);
         }
-        if (changed) handlers = null;
     }
 
     /**
      * 合并(bake)一个HashMap和ArrayLists到二维数组 - 如果不必要，什么也不会做.
      * <p>
+     * 译注:现在每次改动都会立即发布合并好的快照, 所以此方法什么也不会做.
+     * <p>
      * 原文：Bake HashMap and ArrayLists to 2d arrays - does nothing if not necessary
      */
-    public synchronized void bake() {
-        if (handlers != null) return; // don't re-bake when still valid
-        List<RegisteredListener> entries = new ArrayList<RegisteredListener>();
-        for (Entry<EventPriority, ArrayList<RegisteredListener>> entry : handlerslots.entrySet()) {
-            entries.addAll(entry.getValue());
-        }
-        handlers = entries.toArray(new RegisteredListener[entries.size()]);
+    public void bake() {
+        // Snapshots are baked when they are published
     }
 
     /**
@@ -218,36 +263,50 @@ public class HandlerList {
      * @return 注册过的监听器的数组
      */
     public RegisteredListener[] getRegisteredListeners() {
-        RegisteredListener[] handlers;
-        while ((handlers = this.handlers) == null) bake(); // This prevents fringe cases of returning null
-        return handlers;
+        return snapshot.handlers;
     }
 
     /**
-     * 获取与这个处理器列表相关的指定插件注册的监听器.
+     * 检查此处理器列表中是否注册了任何监听器. 此方法不加锁也不会合并(bake),
+     * 可以在构造事件对象之前调用, 没有监听器时就不必创建事件了.
+     * <p>
+     * 原文：Checks if any listener is registered in this handler list. This
+     * neither locks nor bakes, so it can be called before constructing an
+     * event to skip the construction when nobody listens.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public boolean hasListeners() {
+        return snapshot.handlers.length != 0;
+    }
+
+    /**
+     * 获取与这个处理器列表相关的调度计划, 调用事件时应使用此计划.
+     * 计划在监听器改动后第一次调用事件时才会建立.
+     * <p>
+     * 原文：Get the baked dispatch plan associated with this handler list, used
+     * when calling events. The plan is built when the first event is called
+     * after the listeners changed.
+     *
+     * @return 调度计划
+     */
+    public DispatchPlan getDispatchPlan() {
+        return snapshot.getPlan();
+    }
+
+    /**
+     * 获取与这个处理器列表相关的指定插件注册的监听器, 按注册的顺序排列.
      * <p>
      * 原文：Get a specific plugin's registered listeners associated with this
-     * handler list
+     * handler list, in the order they were registered
      *
      * @param plugin 要获取监听器的插件
      * @return 注册的监听器列表
      */
     public static ArrayList<RegisteredListener> getRegisteredListeners(Plugin plugin) {
-        ArrayList<RegisteredListener> listeners = new ArrayList<RegisteredListener>();
-        synchronized (allLists) {
-            for (HandlerList h : allLists) {
-                synchronized (h) {
-                    for (List<RegisteredListener> list : h.handlerslots.values()) {
-                        for (RegisteredListener listener : list) {
-                            if (listener.getPlugin().equals(plugin)) {
-                                listeners.add(listener);
-                            }
-                        }
-                    }
-                }
-            }
+        synchronized (index) {
+            return index.getListeners(plugin);
         }
-        return listeners;
     }
 
     /**
@@ -257,10 +316,176 @@ public class HandlerList {
      *
      * @return 所有处理器的列表
      */
-    @SuppressWarnings("unchecked")
     public static ArrayList<HandlerList> getHandlerLists() {
-        synchronized (allLists) {
-            return (ArrayList<HandlerList>) allLists.clone();
+        return new ArrayList<HandlerList>(allLists);
+    }
+
+    /**
+     * An immutable state of a handler list
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(emptySlots());
+
+        /**
+         * Listeners by {@link EventPriority#ordinal()}
+         */
+        final RegisteredListener[][] slots;
+        final RegisteredListener[] handlers;
+        /**
+         * Built on first use, so registering many listeners in a row does not
+         * build a plan for each of them. Building it twice in a race is
+         * harmless, plans are immutable.
+         */
+        private volatile DispatchPlan plan;
+
+        Snapshot(RegisteredListener[][] slots) {
+            int size = 0;
+            for (RegisteredListener[] slot : slots) {
+                size += slot.length;
+            }
+            RegisteredListener[] baked = new RegisteredListener[size];
+            int index = 0;
+            for (RegisteredListener[] slot : slots) {
+                System.arraycopy(slot, 0, baked, index, slot.length);
+                index += slot.length;
+            }
+            this.slots = slots;
+            this.handlers = baked;
+            if (size == 0) {
+                this.plan = DispatchPlan.EMPTY;
+            }
+        }
+
+        DispatchPlan getPlan() {
+            DispatchPlan result = plan;
+            if (result == null) {
+                result = new DispatchPlan(handlers);
+                plan = result;
+            }
+            return result;
+        }
+
+        RegisteredListener[][] copySlots() {
+            return slots.clone();
+        }
+
+        private static RegisteredListener[][] emptySlots() {
+            RegisteredListener[][] slots = new RegisteredListener[EventPriority.values().length][];
+            Arrays.fill(slots, new RegisteredListener[0]);
+            return slots;
+        }
+    }
+
+    /**
+     * Registrations by plugin and by listener, each in the order they were
+     * registered. Not thread safe, guarded by its own monitor.
+     */
+    private static final class ListenerIndex {
+        private final Map<Plugin, Set<Entry>> byPlugin = new HashMap<Plugin, Set<Entry>>();
+        private final Map<Listener, Set<Entry>> byListener = new HashMap<Listener, Set<Entry>>();
+
+        void add(HandlerList list, RegisteredListener registration) {
+            Entry entry = new Entry(list, registration);
+            add(byPlugin, registration.getPlugin(), entry);
+            add(byListener, registration.getListener(), entry);
+        }
+
+        void remove(HandlerList list, RegisteredListener registration) {
+            Entry entry = new Entry(list, registration);
+            remove(byPlugin, registration.getPlugin(), entry);
+            remove(byListener, registration.getListener(), entry);
+        }
+
+        /**
+         * Gets a copy of the registrations of a plugin, by handler list
+         */
+        Map<HandlerList, Set<RegisteredListener>> get(Plugin plugin) {
+            return group(byPlugin.get(plugin));
+        }
+
+        /**
+         * Gets a copy of the registrations of a listener, by handler list
+         */
+        Map<HandlerList, Set<RegisteredListener>> get(Listener listener) {
+            return group(byListener.get(listener));
+        }
+
+        /**
+         * Gets the registrations of a plugin in every handler list, in the
+         * order they were registered
+         */
+        ArrayList<RegisteredListener> getListeners(Plugin plugin) {
+            Set<Entry> entries = byPlugin.get(plugin);
+            ArrayList<RegisteredListener> listeners = new ArrayList<RegisteredListener>(entries == null ? 0 : entries.size());
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    listeners.add(entry.registration);
+                }
+            }
+            return listeners;
+        }
+
+        void clear() {
+            byPlugin.clear();
+            byListener.clear();
+        }
+
+        private static <K> void add(Map<K, Set<Entry>> map, K key, Entry entry) {
+            Set<Entry> entries = map.get(key);
+            if (entries == null) {
+                entries = new LinkedHashSet<Entry>();
+                map.put(key, entries);
+            }
+            entries.add(entry);
+        }
+
+        private static <K> void remove(Map<K, Set<Entry>> map, K key, Entry entry) {
+            Set<Entry> entries = map.get(key);
+            if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+                map.remove(key);
+            }
+        }
+
+        private static Map<HandlerList, Set<RegisteredListener>> group(Set<Entry> entries) {
+            Map<HandlerList, Set<RegisteredListener>> lists = new LinkedHashMap<HandlerList, Set<RegisteredListener>>();
+            if (entries != null) {
+                for (Entry entry : entries) {
+                    Set<RegisteredListener> registrations = lists.get(entry.list);
+                    if (registrations == null) {
+                        registrations = new LinkedHashSet<RegisteredListener>();
+                        lists.put(entry.list, registrations);
+                    }
+                    registrations.add(entry.registration);
+                }
+            }
+            return lists;
+        }
+
+        /**
+         * A registration together with the handler list it is registered in
+         */
+        private static final class Entry {
+            final HandlerList list;
+            final RegisteredListener registration;
+
+            Entry(HandlerList list, RegisteredListener registration) {
+                this.list = list;
+                this.registration = registration;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                if (!(obj instanceof Entry)) {
+                    return false;
+                }
+                Entry other = (Entry) obj;
+                return list == other.list && registration.equals(other.registration);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * System.identityHashCode(list) + registration.hashCode();
+            }
         }
     }
 }
\ No newline at end of file
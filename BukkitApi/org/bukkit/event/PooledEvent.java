@@ -0,0 +1,32 @@
+package org.bukkit.event;
+
+/**
+ * An event which can be reused through an {@link EventPool}
+ * <p>
+ * A pooled event is only valid while it is being called. Listeners must not
+ * keep a reference to it after their handler returns; anything needed later
+ * has to be copied out of the event. While an instance is released it
+ * throws {@link IllegalStateException} when used, which is how
+ * {@link EventPool#setDebug(boolean) debug mode} finds listeners that break
+ * this rule.
+ */
+public interface PooledEvent {
+
+    /**
+     * Marks this event as returned to its pool, or as taken from it again
+     * <p>
+     * This is called by {@link EventPool} and should not be called by
+     * plugins.
+     *
+     * @param released true if the event was returned to its pool
+     */
+    public void setReleased(boolean released);
+
+    /**
+     * Checks if this event was returned to its pool and may no longer be
+     * used
+     *
+     * @return true if the event was released
+     */
+    public boolean isReleased();
+}
@@ -70,4 +70,16 @@ public class BlockFromToEvent extends BlockEvent implements Cancellable {
     public static HandlerList getHandlerList() {
         return handlers;
     }
+
+    /**
+     * 检查是否有监听器注册了此事件. 没有监听器时, 调用者可以跳过此事件的创建.
+     * <p>
+     * 原文：Checks if any listener is registered for this event. When there
+     * is none, callers can skip constructing the event.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
 }
\ No newline at end of file
@@ -12,7 +12,7 @@ import org.bukkit.entity.Entity;
  * Called when an entity is damaged by a block
  */
 public class EntityDamageByBlockEvent extends EntityDamageEvent {
-    private final Block damager;
+    private Block damager;
 
     @Deprecated
     public EntityDamageByBlockEvent(final Block damager, final Entity damagee, final DamageCause cause, final int damage) {
@@ -40,6 +40,38 @@ public class EntityDamageByBlockEvent extends EntityDamageEvent {
      * @return Block that damaged the player
      */
     public Block getDamager() {
+        checkReleased();
         return damager;
     }
+
+    /**
+     * 此事件还记录了伤害来源, 不能以这种方式重置. 请使用
+     * {@link #reset(Block, Entity, DamageCause, Map, Map)}.
+     * <p>
+     * 原文：This event also records the damager and cannot be reset this way.
+     * Use {@link #reset(Block, Entity, DamageCause, Map, Map)} instead.
+     *
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public void reset(final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
+        throw new UnsupportedOperationException(getEventName() + " must be reset with its damager");
+    }
+
+    /**
+     * 将此事件重置为新的状态, 以便通过 {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * <p>
+     * 原文：Resets this event to a new state, so the same instance can be reused
+     * through an {@link org.bukkit.event.EventPool}.
+     *
+     * @param damager 造成伤害的方块
+     * @param damagee 受到伤害的实体
+     * @param cause 伤害原因
+     * @param modifiers 各伤害类型的伤害值
+     * @param modifierFunctions 各伤害类型的伤害函数
+     */
+    public void reset(final Block damager, final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
+        super.reset(damagee, cause, modifiers, modifierFunctions);
+        this.damager = damager;
+    }
 }
@@ -9,7 +9,7 @@ import org.bukkit.entity.Entity;
  * 当一个实体受到另外一个实体伤害时触发该事件
  */
 public class EntityDamageByEntityEvent extends EntityDamageEvent {
-    private final Entity damager;
+    private Entity damager;
 
     @Deprecated
     public EntityDamageByEntityEvent(final Entity damager, final Entity damagee, final DamageCause cause, final int damage) {
@@ -36,6 +36,38 @@ public class EntityDamageByEntityEvent extends EntityDamageEvent {
      * @return 造成这次伤害的实体
      */
     public Entity getDamager() {
+        checkReleased();
         return damager;
     }
+
+    /**
+     * 此事件还记录了伤害来源, 不能以这种方式重置. 请使用
+     * {@link #reset(Entity, Entity, DamageCause, Map, Map)}.
+     * <p>
+     * 原文：This event also records the damager and cannot be reset this way.
+     * Use {@link #reset(Entity, Entity, DamageCause, Map, Map)} instead.
+     *
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public void reset(final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
+        throw new UnsupportedOperationException(getEventName() + " must be reset with its damager");
+    }
+
+    /**
+     * 将此事件重置为新的状态, 以便通过 {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * <p>
+     * 原文：Resets this event to a new state, so the same instance can be reused
+     * through an {@link org.bukkit.event.EventPool}.
+     *
+     * @param damager 造成伤害的实体
+     * @param damagee 受到伤害的实体
+     * @param cause 伤害原因
+     * @param modifiers 各伤害类型的伤害值
+     * @param modifierFunctions 各伤害类型的伤害函数
+     */
+    public void reset(final Entity damager, final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
+        super.reset(damagee, cause, modifiers, modifierFunctions);
+        this.damager = damager;
+    }
 }
\ No newline at end of file
@@ -9,6 +9,7 @@ import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.PooledEvent;
 import org.bukkit.util.NumberConversions;
 
 import com.google.common.base.Function;
@@ -20,15 +21,16 @@ import com.google.common.collect.ImmutableMap;
  * 原文:
  * Stores data for damage events
  */
-public class EntityDamageEvent extends EntityEvent implements Cancellable {
+public class EntityDamageEvent extends EntityEvent implements Cancellable, PooledEvent {
     private static final HandlerList handlers = new HandlerList();
     private static final DamageModifier[] MODIFIERS = DamageModifier.values();
     private static final Function<? super Double, Double> ZERO = Functions.constant(-0.0);
     private final Map<DamageModifier, Double> modifiers;
-    private final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions;
+    private Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions;
     private final Map<DamageModifier, Double> originals;
     private boolean cancelled;
-    private final DamageCause cause;
+    private DamageCause cause;
+    private boolean released = false;
 
     @Deprecated
     public EntityDamageEvent(final Entity damagee, final DamageCause cause, final int damage) {
@@ -42,22 +44,80 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
 
     public EntityDamageEvent(final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
         super(damagee);
+        validate(modifiers, modifierFunctions);
+        this.originals = new EnumMap<DamageModifier, Double>(modifiers);
+        this.cause = cause;
+        this.modifiers = new EnumMap<DamageModifier, Double>(modifiers);
+        this.modifierFunctions = modifierFunctions;
+    }
+
+    private static void validate(final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
         Validate.isTrue(modifiers.containsKey(DamageModifier.BASE), "BASE DamageModifier missing");
         Validate.isTrue(!modifiers.containsKey(null), "Cannot have null DamageModifier");
         Validate.noNullElements(modifiers.values(), "Cannot have null modifier values");
         Validate.isTrue(modifiers.keySet().equals(modifierFunctions.keySet()), "Must have a modifier function for each DamageModifier");
         Validate.noNullElements(modifierFunctions.values(), "Cannot have null modifier function");
-        this.originals = new EnumMap<DamageModifier, Double>(modifiers);
+    }
+
+    /**
+     * 将此事件重置为新的状态, 以便通过 {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * 伤害值会被复制到此事件自己的映射中, 伤害函数则直接引用.
+     * 有额外状态的子类(如 {@link EntityDamageByEntityEvent})会重写此方法并抛出
+     * {@link UnsupportedOperationException}, 请使用它们自己的重置方法.
+     * <p>
+     * 原文：Resets this event to a new state, so the same instance can be reused
+     * through an {@link org.bukkit.event.EventPool}. The damage values are
+     * copied into this event's own maps, the modifier functions are
+     * referenced. Subclasses with additional state, such as
+     * {@link EntityDamageByEntityEvent}, override this method to throw
+     * {@link UnsupportedOperationException} and provide their own reset.
+     *
+     * @param damagee 受到伤害的实体
+     * @param cause 伤害原因
+     * @param modifiers 各伤害类型的伤害值
+     * @param modifierFunctions 各伤害类型的伤害函数
+     */
+    public void reset(final Entity damagee, final DamageCause cause, final Map<DamageModifier, Double> modifiers, final Map<DamageModifier, ? extends Function<? super Double, Double>> modifierFunctions) {
+        checkReleased();
+        validate(modifiers, modifierFunctions);
+        this.entity = damagee;
         this.cause = cause;
-        this.modifiers = modifiers;
+        this.originals.clear();
+        this.originals.putAll(modifiers);
+        this.modifiers.clear();
+        this.modifiers.putAll(modifiers);
         this.modifierFunctions = modifierFunctions;
+        this.cancelled = false;
+    }
+
+    public void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 如果此事件已被放回事件池, 则抛出异常.
+     * <p>
+     * 原文：Throws an exception if this event was released to its pool.
+     *
+     * @throws IllegalStateException 如果此事件已被放回事件池
+     */
+    protected final void checkReleased() {
+        if (released) {
+            throw new IllegalStateException(getEventName() + " was used after being released to its pool");
+        }
     }
 
     public boolean isCancelled() {
+        checkReleased();
         return cancelled;
     }
 
     public void setCancelled(boolean cancel) {
+        checkReleased();
         cancelled = cancel;
     }
 
@@ -76,6 +136,7 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
      * @throws IllegalArgumentException if type is null
      */
     public double getOriginalDamage(DamageModifier type) throws IllegalArgumentException {
+        checkReleased();
         final Double damage = originals.get(type);
         if (damage != null) {
             return damage;
@@ -107,6 +168,7 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
      *     #isApplicable(DamageModifier)} returns false
      */
     public void setDamage(DamageModifier type, double damage) throws IllegalArgumentException, UnsupportedOperationException {
+        checkReleased();
         if (!modifiers.containsKey(type)) {
             throw type == null ? new IllegalArgumentException("Cannot have null DamageModifier") : new UnsupportedOperationException(type + " is not applicable to " + getEntity());
         }
@@ -128,6 +190,7 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
      * @see DamageModifier#BASE
      */
     public double getDamage(DamageModifier type) throws IllegalArgumentException {
+        checkReleased();
         Validate.notNull(type, "Cannot have null DamageModifier");
         final Double damage = modifiers.get(type);
         return damage == null ? 0 : damage;
@@ -155,6 +218,7 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
      * @throws IllegalArgumentException if type is null
      */
     public boolean isApplicable(DamageModifier type) throws IllegalArgumentException {
+        checkReleased();
         Validate.notNull(type, "Cannot have null DamageModifier");
         return modifiers.containsKey(type);
     }
@@ -258,6 +322,7 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
      * @return A DamageCause value detailing the cause of the damage.
      */
     public DamageCause getCause() {
+        checkReleased();
         return cause;
     }
 
@@ -270,6 +335,18 @@ public class EntityDamageEvent extends EntityEvent implements Cancellable {
         return handlers;
     }
 
+    /**
+     * 检查是否有监听器注册了此事件. 没有监听器时, 调用者可以跳过此事件的创建.
+     * <p>
+     * 原文：Checks if any listener is registered for this event. When there
+     * is none, callers can skip constructing the event.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
+
     /**
      * An enum to specify the types of modifier
      */
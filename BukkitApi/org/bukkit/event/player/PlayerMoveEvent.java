@@ -5,15 +5,17 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.Cancellable;
 import org.bukkit.event.HandlerList;
+import org.bukkit.event.PooledEvent;
 
 /**
  * 玩家移动事件.
  */
-public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
+public class PlayerMoveEvent extends PlayerEvent implements Cancellable, PooledEvent {
     private static final HandlerList handlers = new HandlerList();
     private boolean cancel = false;
     private Location from;
     private Location to;
+    private boolean released = false;
 
     public PlayerMoveEvent(final Player player, final Location from, final Location to) {
         super(player);
@@ -21,6 +23,45 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
         this.to = to;
     }
 
+    /**
+     * 将此事件重置为新的状态, 以便通过 {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * <p>
+     * 原文：Resets this event to a new state, so the same instance can be reused
+     * through an {@link org.bukkit.event.EventPool}.
+     *
+     * @param player 移动的玩家
+     * @param from 移动前的位置
+     * @param to 移动后的位置
+     */
+    public void reset(final Player player, final Location from, final Location to) {
+        checkReleased();
+        this.player = player;
+        this.from = from;
+        this.to = to;
+        this.cancel = false;
+    }
+
+    public void setReleased(boolean released) {
+        this.released = released;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * 如果此事件已被放回事件池, 则抛出异常.
+     * <p>
+     * 原文：Throws an exception if this event was released to its pool.
+     *
+     * @throws IllegalStateException 如果此事件已被放回事件池
+     */
+    protected final void checkReleased() {
+        if (released) {
+            throw new IllegalStateException(getEventName() + " was used after being released to its pool");
+        }
+    }
+
     /**
      * 获取此事件的取消状态. 被取消的事件将不会在服务器上执行，但将仍然传递给其他插件.
      * <p>
@@ -36,6 +77,7 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
      * @return 是否取消了这个事件
      */
     public boolean isCancelled() {
+        checkReleased();
         return cancel;
     }
 
@@ -54,6 +96,7 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
      * @param cancel 是否取消这个事件
      */
     public void setCancelled(boolean cancel) {
+        checkReleased();
         this.cancel = cancel;
     }
 
@@ -65,6 +108,7 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
      * @return 得到玩家移动之前的位置
      */
     public Location getFrom() {
+        checkReleased();
         return from;
     }
 
@@ -88,6 +132,7 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
      * @return 玩家移动到的位置
      */
     public Location getTo() {
+        checkReleased();
         return to;
     }
 
@@ -104,6 +149,7 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
     }
 
     private void validateLocation(Location loc) {
+        checkReleased();
         Preconditions.checkArgument(loc != null, "Cannot use null location!");
         Preconditions.checkArgument(loc.getWorld() != null, "Cannot use null location with null world!");
     }
@@ -116,4 +162,16 @@ public class PlayerMoveEvent extends PlayerEvent implements Cancellable {
     public static HandlerList getHandlerList() {
         return handlers;
     }
+
+    /**
+     * 检查是否有监听器注册了此事件. 没有监听器时, 调用者可以跳过此事件的创建.
+     * <p>
+     * 原文：Checks if any listener is registered for this event. When there
+     * is none, callers can skip constructing the event.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
 }
\ No newline at end of file
@@ -25,6 +25,71 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
         this.travelAgent = pta;
     }
 
+    /**
+     * 此事件还记录了传送门代理, 不能以这种方式重置. 请使用
+     * {@link #reset(Player, Location, Location, TravelAgent)}.
+     * <p>
+     * 原文：This event also records the travel agent and cannot be reset this
+     * way. Use {@link #reset(Player, Location, Location, TravelAgent)} instead.
+     *
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public void reset(final Player player, final Location from, final Location to) {
+        throw new UnsupportedOperationException(getEventName() + " must be reset with its travel agent");
+    }
+
+    /**
+     * 此事件还记录了传送门代理, 不能以这种方式重置. 请使用
+     * {@link #reset(Player, Location, Location, TravelAgent, TeleportCause)}.
+     * <p>
+     * 原文：This event also records the travel agent and cannot be reset this
+     * way. Use {@link #reset(Player, Location, Location, TravelAgent,
+     * TeleportCause)} instead.
+     *
+     * @throws UnsupportedOperationException 总是抛出
+     */
+    @Override
+    public void reset(final Player player, final Location from, final Location to, final TeleportCause cause) {
+        throw new UnsupportedOperationException(getEventName() + " must be reset with its travel agent");
+    }
+
+    /**
+     * 将此事件重置为新的状态, 传送理由重置为 {@link TeleportCause#UNKNOWN},
+     * 并重新启用传送门代理.
+     * <p>
+     * 原文：Resets this event to a new state, with the cause reset to
+     * {@link TeleportCause#UNKNOWN} and the travel agent enabled again.
+     *
+     * @param player 传送的玩家
+     * @param from 传送前的位置
+     * @param to 传送后的位置
+     * @param pta 传送门代理
+     */
+    public void reset(final Player player, final Location from, final Location to, final TravelAgent pta) {
+        reset(player, from, to, pta, TeleportCause.UNKNOWN);
+    }
+
+    /**
+     * 将此事件重置为新的状态, 并重新启用传送门代理, 以便通过
+     * {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * <p>
+     * 原文：Resets this event to a new state with the travel agent enabled
+     * again, so the same instance can be reused through an
+     * {@link org.bukkit.event.EventPool}.
+     *
+     * @param player 传送的玩家
+     * @param from 传送前的位置
+     * @param to 传送后的位置
+     * @param pta 传送门代理
+     * @param cause 传送理由
+     */
+    public void reset(final Player player, final Location from, final Location to, final TravelAgent pta, final TeleportCause cause) {
+        super.reset(player, from, to, cause);
+        this.travelAgent = pta;
+        this.useTravelAgent = true;
+    }
+
     /**
      * 设置是否让玩家传送到另一端的传送门.
      * <p>
@@ -44,6 +109,7 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
      * @param useTravelAgent 是否让玩家传送到另一端的传送门true/false
      */
     public void useTravelAgent(boolean useTravelAgent) {
+        checkReleased();
         this.useTravelAgent = useTravelAgent;
     }
 
@@ -66,6 +132,7 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
      * @return 是否让玩家传送到另一端的传送门
      */
     public boolean useTravelAgent() {
+        checkReleased();
         return useTravelAgent && travelAgent != null;
     }
 
@@ -77,6 +144,7 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
      * @return 玩家在这个事件中使用的传送门
      */
     public TravelAgent getPortalTravelAgent() {
+        checkReleased();
         return this.travelAgent;
     }
 
@@ -88,6 +156,7 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
      * @param travelAgent 玩家在这个事件中使用的传送门
      */
     public void setPortalTravelAgent(TravelAgent travelAgent) {
+        checkReleased();
         this.travelAgent = travelAgent;
     }
 
@@ -99,4 +168,16 @@ public class PlayerPortalEvent extends PlayerTeleportEvent {
     public static HandlerList getHandlerList() {
         return handlers;
     }
+
+    /**
+     * 检查是否有监听器注册了此事件. 没有监听器时, 调用者可以跳过此事件的创建.
+     * <p>
+     * 原文：Checks if any listener is registered for this event. When there
+     * is none, callers can skip constructing the event.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
 }
\ No newline at end of file
@@ -21,6 +21,37 @@ public class PlayerTeleportEvent extends PlayerMoveEvent {
         this.cause = cause;
     }
 
+    /**
+     * 将此事件重置为新的状态, 传送理由重置为 {@link TeleportCause#UNKNOWN}.
+     * <p>
+     * 原文：Resets this event to a new state, with the cause reset to
+     * {@link TeleportCause#UNKNOWN}.
+     *
+     * @param player 传送的玩家
+     * @param from 传送前的位置
+     * @param to 传送后的位置
+     */
+    @Override
+    public void reset(final Player player, final Location from, final Location to) {
+        reset(player, from, to, TeleportCause.UNKNOWN);
+    }
+
+    /**
+     * 将此事件重置为新的状态, 以便通过 {@link org.bukkit.event.EventPool} 重复使用同一个对象.
+     * <p>
+     * 原文：Resets this event to a new state, so the same instance can be reused
+     * through an {@link org.bukkit.event.EventPool}.
+     *
+     * @param player 传送的玩家
+     * @param from 传送前的位置
+     * @param to 传送后的位置
+     * @param cause 传送理由
+     */
+    public void reset(final Player player, final Location from, final Location to, final TeleportCause cause) {
+        super.reset(player, from, to);
+        this.cause = cause;
+    }
+
     /**
      * 获得此次传送的传送理由.
      * <p>
@@ -29,6 +60,7 @@ public class PlayerTeleportEvent extends PlayerMoveEvent {
      * @return 传送理由
      */
     public TeleportCause getCause() {
+        checkReleased();
         return cause;
     }
 
@@ -79,4 +111,16 @@ public class PlayerTeleportEvent extends PlayerMoveEvent {
     public static HandlerList getHandlerList() {
         return handlers;
     }
+
+    /**
+     * 检查是否有监听器注册了此事件. 没有监听器时, 调用者可以跳过此事件的创建.
+     * <p>
+     * 原文：Checks if any listener is registered for this event. When there
+     * is none, callers can skip constructing the event.
+     *
+     * @return 如果有监听器注册则返回true
+     */
+    public static boolean hasListeners() {
+        return handlers.hasListeners();
+    }
 }
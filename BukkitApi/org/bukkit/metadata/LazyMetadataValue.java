@@ -2,6 +2,12 @@ package org.bukkit.metadata;
 
 import java.lang.ref.SoftReference;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.Plugin;
@@ -16,12 +22,30 @@ import org.bukkit.plugin.Plugin;
  * by a {@link CacheStrategy} or invalidated at the individual or plugin
  * level. Once invalidated, the LazyMetadataValue will recompute its value
  * when asked.
+ * <p>
+ * A value cached {@link CacheStrategy#CACHE_FOR_DURATION for a duration} is
+ * held strongly and recomputed once it expires. Only one reader recomputes
+ * it, while the others keep reading the expired value. Given an {@link
+ * Executor}, the value is instead recomputed on the executor, starting
+ * ahead of its expiry, and readers never wait for it except for the very
+ * first evaluation.
  */
 public class LazyMetadataValue extends MetadataValueAdapter implements MetadataValue {
+    // Longest duration, so that durations converted from any unit can be
+    // added to and subtracted from System.nanoTime() without overflowing
+    private static final long MAX_DURATION_NANOS = Long.MAX_VALUE / 4;
     private Callable<Object> lazyValue;
     private CacheStrategy cacheStrategy;
-    private SoftReference<Object> internalValue;
+    private volatile SoftReference<Object> internalValue;
     private static final Object ACTUALLY_NULL = new Object();
+    private long durationNanos;
+    private long refreshNanos;
+    private Executor executor;
+    private volatile TimedValue timedValue;
+    private final AtomicBoolean loading = new AtomicBoolean();
+    // Incremented by invalidate(), so that values computed before an
+    // invalidation are not cached after it
+    private final AtomicInteger generation = new AtomicInteger();
 
     /**
      * Initialized a LazyMetadataValue object with the default
@@ -48,11 +72,60 @@ public class LazyMetadataValue extends MetadataValueAdapter implements MetadataV
         super(owningPlugin);
         Validate.notNull(cacheStrategy, "cacheStrategy cannot be null");
         Validate.notNull(lazyValue, "lazyValue cannot be null");
+        Validate.isTrue(cacheStrategy != CacheStrategy.CACHE_FOR_DURATION, "CACHE_FOR_DURATION requires a duration");
         this.internalValue = new SoftReference<Object>(null);
         this.lazyValue = lazyValue;
         this.cacheStrategy = cacheStrategy;
     }
 
+    /**
+     * Initializes a LazyMetadataValue object with the CACHE_FOR_DURATION
+     * cache strategy, recomputing the value on a reading thread once it
+     * expires.
+     *
+     * @param owningPlugin the {@link Plugin} that created this metadata
+     *     value.
+     * @param duration how long a computed value stays valid.
+     * @param unit the unit of the duration.
+     * @param lazyValue the lazy value assigned to this metadata value.
+     */
+    public LazyMetadataValue(Plugin owningPlugin, long duration, TimeUnit unit, Callable<Object> lazyValue) {
+        this(owningPlugin, duration, unit, null, lazyValue);
+    }
+
+    /**
+     * Initializes a LazyMetadataValue object with the CACHE_FOR_DURATION
+     * cache strategy, recomputing the value on the given executor.
+     * <p>
+     * Recomputing starts once three quarters of the duration have passed,
+     * and readers get the last computed value until it completes. If it
+     * fails, the failure is logged and the last computed value is kept. A
+     * value whose computation started before the last call to {@link
+     * #invalidate()} is discarded, and the value is computed again.
+     * <p>
+     * Durations longer than about 73 years are shortened to that.
+     *
+     * @param owningPlugin the {@link Plugin} that created this metadata
+     *     value.
+     * @param duration how long a computed value stays valid.
+     * @param unit the unit of the duration.
+     * @param executor the executor recomputing the value, or null to
+     *     recompute it on a reading thread.
+     * @param lazyValue the lazy value assigned to this metadata value.
+     */
+    public LazyMetadataValue(Plugin owningPlugin, long duration, TimeUnit unit, Executor executor, Callable<Object> lazyValue) {
+        super(owningPlugin);
+        Validate.isTrue(duration > 0, "duration must be positive");
+        Validate.notNull(unit, "unit cannot be null");
+        Validate.notNull(lazyValue, "lazyValue cannot be null");
+        this.internalValue = new SoftReference<Object>(null);
+        this.lazyValue = lazyValue;
+        this.cacheStrategy = CacheStrategy.CACHE_FOR_DURATION;
+        this.durationNanos = Math.min(unit.toNanos(duration), MAX_DURATION_NANOS);
+        this.refreshNanos = executor == null ? durationNanos : durationNanos - durationNanos / 4;
+        this.executor = executor;
+    }
+
     /**
      * Protected special constructor used by FixedMetadataValue to bypass
      * standard setup.
@@ -64,8 +137,7 @@ public class LazyMetadataValue extends MetadataValueAdapter implements MetadataV
     }
 
     public Object value() {
-        eval();
-        Object value = internalValue.get();
+        Object value = cacheStrategy == CacheStrategy.CACHE_FOR_DURATION ? evalTimed() : eval();
         if (value == ACTUALLY_NULL) {
             return null;
         }
@@ -75,29 +147,137 @@ public class LazyMetadataValue extends MetadataValueAdapter implements MetadataV
     /**
      * Lazily evaluates the value of this metadata item.
      *
+     * @return the cached or computed value.
      * @throws MetadataEvaluationException if computing the metadata value
      *     fails.
      */
-    private synchronized void eval() throws MetadataEvaluationException {
-        if (cacheStrategy == CacheStrategy.NEVER_CACHE || internalValue.get() == null) {
-            try {
-                Object value = lazyValue.call();
-                if (value == null) {
-                    value = ACTUALLY_NULL;
-                }
+    private Object eval() throws MetadataEvaluationException {
+        if (cacheStrategy != CacheStrategy.NEVER_CACHE) {
+            Object value = internalValue.get();
+            if (value != null) {
+                return value;
+            }
+        }
+
+        synchronized (this) {
+            Object value = cacheStrategy == CacheStrategy.NEVER_CACHE ? null : internalValue.get();
+            if (value == null) {
+                value = compute();
                 internalValue = new SoftReference<Object>(value);
-            } catch (Exception e) {
-                throw new MetadataEvaluationException(e);
             }
+            return value;
+        }
+    }
+
+    /**
+     * Evaluates the value of this metadata item under the
+     * CACHE_FOR_DURATION strategy.
+     *
+     * @return the cached or computed value.
+     * @throws MetadataEvaluationException if computing the first value, or
+     *     recomputing it on this thread, fails.
+     */
+    private Object evalTimed() throws MetadataEvaluationException {
+        TimedValue current = timedValue;
+        if (current == null) {
+            // Nothing to fall back on yet, so the first value is computed here
+            synchronized (this) {
+                current = timedValue;
+                if (current == null) {
+                    current = new TimedValue(compute(), System.nanoTime(), false);
+                    timedValue = current;
+                }
+            }
+            return current.value;
+        }
+
+        if ((!current.expired && System.nanoTime() - current.computedAt < refreshNanos) || !loading.compareAndSet(false, true)) {
+            return current.value;
+        }
+
+        if (executor != null) {
+            try {
+                executor.execute(new Refresh());
+            } catch (RejectedExecutionException ex) {
+                loading.set(false);
+            }
+            return current.value;
+        }
+
+        try {
+            int started = generation.get();
+            Object value = compute();
+            publish(value, started);
+            return value;
+        } finally {
+            loading.set(false);
+        }
+    }
+
+    /**
+     * Caches a recomputed CACHE_FOR_DURATION value, unless the value was
+     * invalidated after its computation started
+     */
+    private synchronized void publish(Object value, int started) {
+        if (generation.get() == started) {
+            timedValue = new TimedValue(value, System.nanoTime(), false);
+        }
+    }
+
+    private Object compute() throws MetadataEvaluationException {
+        try {
+            Object value = lazyValue.call();
+            return value == null ? ACTUALLY_NULL : value;
+        } catch (Exception e) {
+            throw new MetadataEvaluationException(e);
         }
     }
 
     public synchronized void invalidate() {
-        if (cacheStrategy != CacheStrategy.CACHE_ETERNALLY) {
+        if (cacheStrategy == CacheStrategy.CACHE_FOR_DURATION) {
+            generation.incrementAndGet();
+            TimedValue current = timedValue;
+            if (current != null) {
+                // Expire the value, which readers may still get until it
+                // was recomputed
+                timedValue = new TimedValue(current.value, current.computedAt, true);
+            }
+        } else if (cacheStrategy != CacheStrategy.CACHE_ETERNALLY) {
             internalValue.clear();
         }
     }
 
+    private static final class TimedValue {
+        private final Object value;
+        private final long computedAt;
+        private final boolean expired;
+
+        TimedValue(Object value, long computedAt, boolean expired) {
+            this.value = value;
+            this.computedAt = computedAt;
+            this.expired = expired;
+        }
+    }
+
+    /**
+     * Recomputes a CACHE_FOR_DURATION value on the executor
+     */
+    private final class Refresh implements Runnable {
+        public void run() {
+            try {
+                int started = generation.get();
+                publish(compute(), started);
+            } catch (MetadataEvaluationException ex) {
+                Plugin plugin = getOwningPlugin();
+                if (plugin != null) {
+                    plugin.getLogger().log(Level.WARNING, "Could not recompute lazy metadata value", ex.getCause());
+                }
+            } finally {
+                loading.set(false);
+            }
+        }
+    }
+
     /**
      * Describes possible caching strategies for metadata.
      */
@@ -117,6 +297,16 @@ public class LazyMetadataValue extends MetadataValueAdapter implements MetadataV
          * Once the metadata value has been evaluated, do not re-evaluate the
          * value in spite of manual invalidation.
          */
-        CACHE_ETERNALLY
+        CACHE_ETERNALLY,
+
+        /**
+         * Once the metadata value has been evaluated, keep it for a fixed
+         * duration, then re-evaluate it while still serving the expired
+         * value to other readers. Invalidating the value expires it early.
+         *
+         * @see LazyMetadataValue#LazyMetadataValue(Plugin, long, TimeUnit,
+         *     Executor, Callable)
+         */
+        CACHE_FOR_DURATION
     }
 }
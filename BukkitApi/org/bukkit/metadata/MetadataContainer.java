@@ -0,0 +1,319 @@
+package org.bukkit.metadata;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.plugin.Plugin;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The metadata of a single subject.
+ * <p>
+ * A container is normally looked up by a {@link MetadataStoreBase}. A server
+ * may instead keep one in a field of the subject and implement the methods
+ * of {@link Metadatable} with it, skipping the lookup; it then has to call
+ * {@link #removeAll(Plugin)} on those containers itself when a plugin is
+ * disabled. Values stored under {@link MetadataKey}s are kept in a
+ * small array of key and value pairs; values stored under string keys are
+ * kept as immutable lists, one per key. Both are replaced as a whole when
+ * written, under the lock of the container, so reading a value takes no lock
+ * and allocates nothing.
+ */
+public final class MetadataContainer {
+    private static final Object[] NO_ENTRIES = new Object[0];
+
+    private volatile Object[] entries = NO_ENTRIES;
+    private volatile ConcurrentMap<String, List<MetadataValue>> namedValues = null;
+    // Set by MetadataStoreBase, under the lock of this container, once it
+    // dropped this container
+    boolean discarded = false;
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key the key of the value
+     * @param <T> the type of the value
+     * @return the value, or null if none is stored
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(MetadataKey<T> key) {
+        Object[] current = entries;
+        for (int i = 0; i < current.length; i += 2) {
+            if (current[i] == key) {
+                return (T) current[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests to see if a value is stored under a key.
+     *
+     * @param key the key being queried
+     * @return true if a value is stored
+     */
+    public boolean has(MetadataKey<?> key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Stores a value under a key, replacing any value stored before.
+     *
+     * @param key the key of the value
+     * @param value the value to store
+     * @param <T> the type of the value
+     * @return the value replaced, or null if there was none
+     * @throws IllegalArgumentException If the key or value is null, or the
+     *     value is not of the type of the key
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T set(MetadataKey<T> key, T value) {
+        Validate.notNull(key, "Key cannot be null");
+        Validate.notNull(value, "Value cannot be null");
+        Validate.isTrue(key.getType().isInstance(value), "Value is not a " + key.getType().getName());
+
+        Object[] current = entries;
+        for (int i = 0; i < current.length; i += 2) {
+            if (current[i] == key) {
+                Object[] updated = current.clone();
+                updated[i + 1] = value;
+                entries = updated;
+                return (T) current[i + 1];
+            }
+        }
+
+        Object[] updated = new Object[current.length + 2];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = key;
+        updated[current.length + 1] = value;
+        entries = updated;
+        return null;
+    }
+
+    /**
+     * Removes the value stored under a key.
+     *
+     * @param key the key of the value
+     * @param <T> the type of the value
+     * @return the value removed, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T remove(MetadataKey<T> key) {
+        Object[] current = entries;
+        for (int i = 0; i < current.length; i += 2) {
+            if (current[i] == key) {
+                Object[] updated = new Object[current.length - 2];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 2, updated, i, current.length - i - 2);
+                entries = updated.length == 0 ? NO_ENTRIES : updated;
+                return (T) current[i + 1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all metadata values stored under a string key, one for each
+     * plugin that has set a value.
+     *
+     * @param metadataKey the unique metadata key being sought.
+     * @return An immutable list of the values, shared by every caller until
+     *     the values change.
+     * @see MetadataStore#getMetadata(Object, String)
+     */
+    public List<MetadataValue> getMetadata(String metadataKey) {
+        ConcurrentMap<String, List<MetadataValue>> current = namedValues;
+        List<MetadataValue> values = current == null ? null : current.get(metadataKey);
+        return values == null ? Collections.<MetadataValue>emptyList() : values;
+    }
+
+    /**
+     * Tests to see if a value is stored under a string key.
+     *
+     * @param metadataKey the unique metadata key being queried.
+     * @return the existence of the metadataKey.
+     * @see MetadataStore#hasMetadata(Object, String)
+     */
+    public boolean hasMetadata(String metadataKey) {
+        ConcurrentMap<String, List<MetadataValue>> current = namedValues;
+        return current != null && current.containsKey(metadataKey);
+    }
+
+    /**
+     * Stores a metadata value under a string key, replacing the value the
+     * same plugin stored before.
+     *
+     * @param metadataKey A unique key to identify this metadata.
+     * @param newMetadataValue The metadata value to apply.
+     * @see MetadataStore#setMetadata(Object, String, MetadataValue)
+     * @throws IllegalArgumentException If value is null, or the owning plugin
+     *     is null
+     */
+    public synchronized void setMetadata(String metadataKey, MetadataValue newMetadataValue) {
+        Validate.notNull(newMetadataValue, "Value cannot be null");
+        Plugin owningPlugin = newMetadataValue.getOwningPlugin();
+        Validate.notNull(owningPlugin, "Plugin cannot be null");
+
+        if (namedValues == null) {
+            namedValues = new ConcurrentHashMap<String, List<MetadataValue>>(4, 0.75f, 1);
+        }
+
+        ImmutableList.Builder<MetadataValue> values = ImmutableList.builder();
+        List<MetadataValue> current = namedValues.get(metadataKey);
+        if (current != null) {
+            for (MetadataValue value : current) {
+                if (value.getOwningPlugin() != owningPlugin) {
+                    values.add(value);
+                }
+            }
+        }
+        namedValues.put(metadataKey, values.add(newMetadataValue).build());
+    }
+
+    /**
+     * Removes the metadata value a plugin stored under a string key.
+     *
+     * @param metadataKey the unique metadata key identifying the metadata to
+     *     remove.
+     * @param owningPlugin the plugin attempting to remove a metadata item.
+     * @see MetadataStore#removeMetadata(Object, String, Plugin)
+     * @throws IllegalArgumentException If plugin is null
+     */
+    public synchronized void removeMetadata(String metadataKey, Plugin owningPlugin) {
+        Validate.notNull(owningPlugin, "Plugin cannot be null");
+        List<MetadataValue> current = namedValues == null ? null : namedValues.get(metadataKey);
+        if (current == null) {
+            return;
+        }
+
+        ImmutableList.Builder<MetadataValue> values = ImmutableList.builder();
+        boolean empty = true;
+        for (MetadataValue value : current) {
+            if (value.getOwningPlugin() != owningPlugin) {
+                values.add(value);
+                empty = false;
+            }
+        }
+        if (empty) {
+            namedValues.remove(metadataKey);
+        } else {
+            namedValues.put(metadataKey, values.build());
+        }
+    }
+
+    /**
+     * Invalidates all metadata values in this container that originate from
+     * the given plugin.
+     *
+     * @param owningPlugin the plugin requesting the invalidation.
+     * @see MetadataStore#invalidateAll(Plugin)
+     * @throws IllegalArgumentException If plugin is null
+     */
+    public void invalidateAll(Plugin owningPlugin) {
+        Validate.notNull(owningPlugin, "Plugin cannot be null");
+        ConcurrentMap<String, List<MetadataValue>> current = namedValues;
+        if (current == null) {
+            return;
+        }
+
+        for (List<MetadataValue> values : current.values()) {
+            for (MetadataValue value : values) {
+                if (value.getOwningPlugin() == owningPlugin) {
+                    value.invalidate();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all metadata values in this container that originate from the
+     * given plugin, along with those whose plugin was unloaded.
+     *
+     * @param owningPlugin the plugin whose values are removed.
+     * @see MetadataStoreBase#removeAll(Plugin)
+     * @throws IllegalArgumentException If plugin is null
+     */
+    public synchronized void removeAll(Plugin owningPlugin) {
+        Validate.notNull(owningPlugin, "Plugin cannot be null");
+
+        Object[] current = entries;
+        int kept = 0;
+        Object[] updated = new Object[current.length];
+        for (int i = 0; i < current.length; i += 2) {
+            Plugin plugin = ((MetadataKey<?>) current[i]).getOwningPlugin();
+            if (plugin != null && plugin != owningPlugin) {
+                updated[kept++] = current[i];
+                updated[kept++] = current[i + 1];
+            }
+        }
+        if (kept == 0) {
+            entries = NO_ENTRIES;
+        } else if (kept < current.length) {
+            Object[] trimmed = new Object[kept];
+            System.arraycopy(updated, 0, trimmed, 0, kept);
+            entries = trimmed;
+        }
+
+        if (namedValues == null) {
+            return;
+        }
+        for (Map.Entry<String, List<MetadataValue>> entry : namedValues.entrySet()) {
+            ImmutableList.Builder<MetadataValue> values = ImmutableList.builder();
+            int remaining = 0;
+            for (MetadataValue value : entry.getValue()) {
+                Plugin plugin = value.getOwningPlugin();
+                if (plugin != null && plugin != owningPlugin) {
+                    values.add(value);
+                    remaining++;
+                }
+            }
+            if (remaining == 0) {
+                namedValues.remove(entry.getKey());
+            } else if (remaining < entry.getValue().size()) {
+                entry.setValue(values.build());
+            }
+        }
+    }
+
+    /**
+     * Adds the number of values each plugin stored in this container to the
+     * given counts
+     */
+    void countEntries(Map<Plugin, Integer> counts) {
+        Object[] current = entries;
+        for (int i = 0; i < current.length; i += 2) {
+            count(counts, ((MetadataKey<?>) current[i]).getOwningPlugin());
+        }
+
+        ConcurrentMap<String, List<MetadataValue>> named = namedValues;
+        if (named != null) {
+            for (List<MetadataValue> values : named.values()) {
+                for (MetadataValue value : values) {
+                    count(counts, value.getOwningPlugin());
+                }
+            }
+        }
+    }
+
+    private static void count(Map<Plugin, Integer> counts, Plugin plugin) {
+        if (plugin != null) {
+            Integer count = counts.get(plugin);
+            counts.put(plugin, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * Tests to see if this container holds no metadata.
+     *
+     * @return true if nothing is stored
+     */
+    public boolean isEmpty() {
+        ConcurrentMap<String, List<MetadataValue>> current = namedValues;
+        return entries.length == 0 && (current == null || current.isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package org.bukkit.metadata;
+
+import java.lang.ref.WeakReference;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * A typed key identifying one metadata value of a subject.
+ * <p>
+ * Unlike string keys, which any number of plugins may share, a key is owned
+ * by the plugin that created it and keys are compared by identity: two keys
+ * with the same name are still distinct. Keys are used with a {@link
+ * MetadataStoreBase} or a {@link MetadataContainer}; the {@link Metadatable}
+ * and {@link MetadataStore} interfaces only take string keys. A plugin would
+ * normally create its keys once and keep them in constants:
+ * <pre>
+ * static final MetadataKey&lt;Integer&gt; COMBO = new MetadataKey&lt;Integer&gt;(plugin, "combo", Integer.class);
+ * ...
+ * store.setMetadata(entity, COMBO, 3);
+ * Integer combo = store.getMetadata(entity, COMBO);
+ * </pre>
+ *
+ * @param <T> the type of the values stored under this key
+ */
+public final class MetadataKey<T> {
+    private final WeakReference<Plugin> owningPlugin;
+    private final String name;
+    private final Class<T> type;
+
+    /**
+     * Creates a new key
+     *
+     * @param owningPlugin the {@link Plugin} that owns the values stored under
+     *     this key
+     * @param name a name describing this key
+     * @param type the type of the values stored under this key
+     * @throws IllegalArgumentException If any argument is null, or the type
+     *     is primitive, such as {@code int.class}; use the wrapper class,
+     *     such as {@code Integer.class}, instead
+     */
+    public MetadataKey(Plugin owningPlugin, String name, Class<T> type) {
+        Validate.notNull(owningPlugin, "owningPlugin cannot be null");
+        Validate.notNull(name, "name cannot be null");
+        Validate.notNull(type, "type cannot be null");
+        Validate.isTrue(!type.isPrimitive(), "type cannot be primitive: ", type);
+        this.owningPlugin = new WeakReference<Plugin>(owningPlugin);
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Returns the {@link Plugin} that created this key.
+     *
+     * @return the plugin that owns this key, or null if it was unloaded
+     */
+    public Plugin getOwningPlugin() {
+        return owningPlugin.get();
+    }
+
+    /**
+     * Returns the name of this key.
+     *
+     * @return the name given when this key was created
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the type of the values stored under this key.
+     *
+     * @return the value type
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        Plugin plugin = getOwningPlugin();
+        return "MetadataKey{" + (plugin == null ? "?" : plugin.getName()) + ":" + name + "}";
+    }
+}
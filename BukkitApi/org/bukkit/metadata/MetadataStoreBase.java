@@ -4,9 +4,29 @@ import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.Plugin;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.google.common.base.Predicate;
+
+/**
+ * A {@link MetadataStore} keeping one {@link MetadataContainer} per subject.
+ * <p>
+ * Subjects are identified by {@link #getSubjectKey(Object)}. The containers
+ * are held in a concurrent map and lock only themselves when written, so
+ * reads take no lock and subjects can be written from several threads at
+ * once.
+ * <p>
+ * Metadata is kept until it is removed. Implementations should call {@link
+ * #removeSubject(Object)} when a subject goes away for good, such as an
+ * entity dying or being removed, {@link #removeSubjects(Predicate)} when a
+ * group of subjects is unloaded, such as the blocks of a chunk, and {@link
+ * #removeAll(Plugin)} when a plugin is disabled.
+ *
+ * @param <T> the type of the subjects
+ */
 public abstract class MetadataStoreBase<T> {
-    private Map<String, Map<Plugin, MetadataValue>> metadataMap = new HashMap<String, Map<Plugin, MetadataValue>>();
+    private final ConcurrentMap<Object, MetadataContainer> containers = new ConcurrentHashMap<Object, MetadataContainer>();
 
     /**
      * Adds a metadata value to an object. Each metadata value is owned by a
@@ -14,14 +34,6 @@ public abstract class MetadataStoreBase<T> {
      * to an object, that value will be replaced with the value of {@code
      * newMetadataValue}. Multiple plugins can set independent values for the
      * same {@code metadataKey} without conflict.
-     * <p>
-     * Implementation note: I considered using a {@link
-     * java.util.concurrent.locks.ReadWriteLock} for controlling access to
-     * {@code metadataMap}, but decided that the added overhead wasn't worth
-     * the finer grained access control.
-     * <p>
-     * Bukkit is almost entirely single threaded so locking overhead shouldn't
-     * pose a problem.
      *
      * @param subject The object receiving the metadata.
      * @param metadataKey A unique key to identify this metadata.
@@ -30,17 +42,19 @@ public abstract class MetadataStoreBase<T> {
      * @throws IllegalArgumentException If value is null, or the owning plugin
      *     is null
      */
-    public synchronized void setMetadata(T subject, String metadataKey, MetadataValue newMetadataValue) {
+    public void setMetadata(T subject, String metadataKey, MetadataValue newMetadataValue) {
         Validate.notNull(newMetadataValue, "Value cannot be null");
-        Plugin owningPlugin = newMetadataValue.getOwningPlugin();
-        Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
-            entry = new WeakHashMap<Plugin, MetadataValue>(1);
-            metadataMap.put(key, entry);
+        Validate.notNull(newMetadataValue.getOwningPlugin(), "Plugin cannot be null");
+        Object key = getSubjectKey(subject);
+        while (true) {
+            MetadataContainer container = getOrCreateContainer(key);
+            synchronized (container) {
+                if (!container.discarded) {
+                    container.setMetadata(metadataKey, newMetadataValue);
+                    return;
+                }
+            }
         }
-        entry.put(owningPlugin, newMetadataValue);
     }
 
     /**
@@ -53,14 +67,9 @@ public abstract class MetadataStoreBase<T> {
      *     requested value.
      * @see MetadataStore#getMetadata(Object, String)
      */
-    public synchronized List<MetadataValue> getMetadata(T subject, String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        if (metadataMap.containsKey(key)) {
-            Collection<MetadataValue> values = metadataMap.get(key).values();
-            return Collections.unmodifiableList(new ArrayList<MetadataValue>(values));
-        } else {
-            return Collections.emptyList();
-        }
+    public List<MetadataValue> getMetadata(T subject, String metadataKey) {
+        MetadataContainer container = containers.get(getSubjectKey(subject));
+        return container == null ? Collections.<MetadataValue>emptyList() : container.getMetadata(metadataKey);
     }
 
     /**
@@ -71,9 +80,9 @@ public abstract class MetadataStoreBase<T> {
      * @param metadataKey the unique metadata key being queried.
      * @return the existence of the metadataKey within subject.
      */
-    public synchronized boolean hasMetadata(T subject, String metadataKey) {
-        String key = disambiguate(subject, metadataKey);
-        return metadataMap.containsKey(key);
+    public boolean hasMetadata(T subject, String metadataKey) {
+        MetadataContainer container = containers.get(getSubjectKey(subject));
+        return container != null && container.hasMetadata(metadataKey);
     }
 
     /**
@@ -87,17 +96,86 @@ public abstract class MetadataStoreBase<T> {
      *     org.bukkit.plugin.Plugin)
      * @throws IllegalArgumentException If plugin is null
      */
-    public synchronized void removeMetadata(T subject, String metadataKey, Plugin owningPlugin) {
+    public void removeMetadata(T subject, String metadataKey, Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        String key = disambiguate(subject, metadataKey);
-        Map<Plugin, MetadataValue> entry = metadataMap.get(key);
-        if (entry == null) {
+        Object key = getSubjectKey(subject);
+        MetadataContainer container = containers.get(key);
+        if (container == null) {
             return;
         }
 
-        entry.remove(owningPlugin);
-        if (entry.isEmpty()) {
-            metadataMap.remove(key);
+        synchronized (container) {
+            container.removeMetadata(metadataKey, owningPlugin);
+            discardIfEmpty(key, container);
+        }
+    }
+
+    /**
+     * Gets the value stored under a typed key on an object.
+     *
+     * @param subject the object being interrogated.
+     * @param key the key of the value.
+     * @param <V> the type of the value.
+     * @return the value, or null if none is stored.
+     */
+    public <V> V getMetadata(T subject, MetadataKey<V> key) {
+        MetadataContainer container = containers.get(getSubjectKey(subject));
+        return container == null ? null : container.get(key);
+    }
+
+    /**
+     * Tests to see if a value is stored under a typed key on an object.
+     *
+     * @param subject the object being interrogated.
+     * @param key the key being queried.
+     * @return true if a value is stored.
+     */
+    public boolean hasMetadata(T subject, MetadataKey<?> key) {
+        MetadataContainer container = containers.get(getSubjectKey(subject));
+        return container != null && container.has(key);
+    }
+
+    /**
+     * Stores a value under a typed key on an object, replacing any value
+     * stored before.
+     *
+     * @param subject the object receiving the value.
+     * @param key the key of the value.
+     * @param value the value to store.
+     * @param <V> the type of the value.
+     * @throws IllegalArgumentException If the key or value is null, or the
+     *     value is not of the type of the key
+     */
+    public <V> void setMetadata(T subject, MetadataKey<V> key, V value) {
+        Validate.notNull(key, "Key cannot be null");
+        Object subjectKey = getSubjectKey(subject);
+        while (true) {
+            MetadataContainer container = getOrCreateContainer(subjectKey);
+            synchronized (container) {
+                if (!container.discarded) {
+                    container.set(key, value);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the value stored under a typed key from an object.
+     *
+     * @param subject the object to remove the value from.
+     * @param key the key of the value.
+     */
+    public void removeMetadata(T subject, MetadataKey<?> key) {
+        Object subjectKey = getSubjectKey(subject);
+        MetadataContainer container = containers.get(subjectKey);
+        if (container == null) {
+            return;
+        }
+
+        synchronized (container) {
+            container.remove(key);
+            discardIfEmpty(subjectKey, container);
         }
     }
 
@@ -110,15 +188,134 @@ public abstract class MetadataStoreBase<T> {
      * @see MetadataStore#invalidateAll(org.bukkit.plugin.Plugin)
      * @throws IllegalArgumentException If plugin is null
      */
-    public synchronized void invalidateAll(Plugin owningPlugin) {
+    public void invalidateAll(Plugin owningPlugin) {
+        Validate.notNull(owningPlugin, "Plugin cannot be null");
+        for (MetadataContainer container : containers.values()) {
+            container.invalidateAll(owningPlugin);
+        }
+    }
+
+    /**
+     * Removes all metadata of an object, whichever plugins it originates
+     * from. This should be called when the object goes away for good, such
+     * as an entity dying or being removed.
+     *
+     * @param subject the object to remove the metadata from.
+     */
+    public void removeSubject(T subject) {
+        MetadataContainer container = containers.remove(getSubjectKey(subject));
+        if (container != null) {
+            synchronized (container) {
+                container.discarded = true;
+            }
+        }
+    }
+
+    /**
+     * Removes all metadata in the metadata store that originates from the
+     * given plugin, along with metadata whose plugin was unloaded. This
+     * should be called when the plugin is disabled.
+     *
+     * @param owningPlugin the plugin whose metadata is removed.
+     * @throws IllegalArgumentException If plugin is null
+     */
+    public void removeAll(Plugin owningPlugin) {
         Validate.notNull(owningPlugin, "Plugin cannot be null");
-        for (Map<Plugin, MetadataValue> values : metadataMap.values()) {
-            if (values.containsKey(owningPlugin)) {
-                values.get(owningPlugin).invalidate();
+        for (Map.Entry<Object, MetadataContainer> entry : containers.entrySet()) {
+            MetadataContainer container = entry.getValue();
+            synchronized (container) {
+                container.removeAll(owningPlugin);
+                discardIfEmpty(entry.getKey(), container);
+            }
+        }
+    }
+
+    /**
+     * Removes all metadata of the objects whose key matches a filter.
+     * <p>
+     * This lets a store drop a group of subjects at once, such as the blocks
+     * of an unloaded chunk, if their keys tell which group they belong to.
+     *
+     * @param subjectKeys the filter selecting keys created by {@link
+     *     #getSubjectKey(Object)}.
+     */
+    protected void removeSubjects(Predicate<Object> subjectKeys) {
+        for (Map.Entry<Object, MetadataContainer> entry : containers.entrySet()) {
+            if (subjectKeys.apply(entry.getKey()) && containers.remove(entry.getKey(), entry.getValue())) {
+                synchronized (entry.getValue()) {
+                    entry.getValue().discarded = true;
+                }
             }
         }
     }
 
+    /**
+     * Gets the number of objects that have metadata in this store.
+     *
+     * @return the number of subjects.
+     */
+    public int getSubjectCount() {
+        return containers.size();
+    }
+
+    /**
+     * Counts the metadata values in this store per plugin they originate
+     * from.
+     * <p>
+     * This walks the whole store, so it is meant for occasional reporting.
+     * Values whose plugin was unloaded are not counted.
+     *
+     * @return the number of values by plugin.
+     */
+    public Map<Plugin, Integer> getEntryCounts() {
+        Map<Plugin, Integer> counts = new HashMap<Plugin, Integer>();
+        for (MetadataContainer container : containers.values()) {
+            container.countEntries(counts);
+        }
+        return counts;
+    }
+
+    private MetadataContainer getOrCreateContainer(Object key) {
+        MetadataContainer container = containers.get(key);
+        if (container == null) {
+            MetadataContainer created = new MetadataContainer();
+            container = containers.putIfAbsent(key, created);
+            if (container == null) {
+                container = created;
+            }
+        }
+        return container;
+    }
+
+    /**
+     * Drops the container of a subject once it holds nothing; writers which
+     * raced with this find it discarded and create a new one
+     */
+    private void discardIfEmpty(Object key, MetadataContainer container) {
+        if (!container.discarded && container.isEmpty()) {
+            container.discarded = true;
+            containers.remove(key, container);
+        }
+    }
+
+    /**
+     * Creates the key identifying the subject in this store.
+     * <p>
+     * The default implementation uses the name created by {@link
+     * #disambiguate(Object, String)} for an empty metadata key, so subjects
+     * are equivalent exactly when {@code disambiguate} says they are. That
+     * builds a string on every lookup. A store may override this method to
+     * return a value that is cheaper to get but equal for the same subjects,
+     * such as the {@link java.util.UUID} of an entity, or a packed
+     * coordinate in a store of the blocks of one world.
+     *
+     * @param subject The object for which this key is being generated.
+     * @return a key identifying the subject.
+     */
+    protected Object getSubjectKey(T subject) {
+        return disambiguate(subject, "");
+    }
+
     /**
      * Creates a unique name for the object receiving metadata by combining
      * unique data from the subject with a metadataKey.
@@ -0,0 +1,257 @@
+package org.bukkit.permissions;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The compiled permissions of a {@link PermissibleBase}, built by
+ * {@link PermissibleBase#recalculatePermissions()}
+ * <p>
+ * Set nodes are stored as two bitsets indexed by {@link PermissionNodes} ID,
+ * one marking which nodes are set and one holding their values, so checking
+ * a node is a single array probe. Set nodes of the form {@code prefix.*},
+ * and the node {@code *}, are also compiled into a character trie, which
+ * resolves a node that is not set itself to its longest matching wildcard.
+ * <p>
+ * Instances are immutable once compiled, so they can be read from any thread
+ * without locking; {@link #update(Map, Collection)} copies the bitsets and
+ * only rewrites the changed nodes.
+ */
+final class EffectivePermissions {
+    static final EffectivePermissions EMPTY = new EffectivePermissions(new long[0], new long[0], null);
+
+    private final long[] set;
+    private final long[] values;
+    private final WildcardTrie wildcards;
+
+    private EffectivePermissions(long[] set, long[] values, WildcardTrie wildcards) {
+        this.set = set;
+        this.values = values;
+        this.wildcards = wildcards;
+    }
+
+    /**
+     * Compiles the given set permissions
+     *
+     * @param permissions Set permissions by lower case name
+     * @return The compiled permissions
+     */
+    static EffectivePermissions compile(Map<String, PermissionAttachmentInfo> permissions) {
+        if (permissions.isEmpty()) {
+            return EMPTY;
+        }
+
+        int words = (PermissionNodes.size() >> 6) + 1;
+        return apply(new long[words], new long[words], null, permissions, permissions.keySet());
+    }
+
+    /**
+     * Compiles the given set permissions, of which only the given nodes
+     * changed since these permissions were compiled
+     *
+     * @param permissions Set permissions by lower case name
+     * @param changed Lower case names of the nodes that were set, unset or
+     *     changed value
+     * @return The compiled permissions
+     */
+    EffectivePermissions update(Map<String, PermissionAttachmentInfo> permissions, Collection<String> changed) {
+        if (permissions.isEmpty()) {
+            return EMPTY;
+        } else if (changed.isEmpty()) {
+            return this;
+        }
+
+        return apply(set.clone(), values.clone(), wildcards, permissions, changed);
+    }
+
+    /**
+     * Writes the given nodes into bitsets owned by the caller, rebuilding the
+     * wildcard trie if any of them is a wildcard
+     */
+    private static EffectivePermissions apply(long[] set, long[] values, WildcardTrie wildcards, Map<String, PermissionAttachmentInfo> permissions, Collection<String> changed) {
+        boolean wildcardChanged = false;
+
+        for (String name : changed) {
+            int id = PermissionNodes.intern(name);
+            if (id >> 6 >= set.length) {
+                // Nodes interned after the bitsets were sized
+                set = grow(set, id);
+                values = grow(values, id);
+            }
+
+            PermissionAttachmentInfo info = permissions.get(name);
+            long bit = 1L << id;
+            if (info == null) {
+                set[id >> 6] &= ~bit;
+                values[id >> 6] &= ~bit;
+            } else {
+                set[id >> 6] |= bit;
+                if (info.getValue()) {
+                    values[id >> 6] |= bit;
+                } else {
+                    values[id >> 6] &= ~bit;
+                }
+            }
+
+            wildcardChanged |= isWildcard(name);
+        }
+
+        if (wildcardChanged) {
+            wildcards = null;
+            for (Map.Entry<String, PermissionAttachmentInfo> entry : permissions.entrySet()) {
+                String name = entry.getKey();
+                if (isWildcard(name)) {
+                    if (wildcards == null) {
+                        wildcards = new WildcardTrie();
+                    }
+                    wildcards.add(name.substring(0, name.length() - 1), entry.getValue().getValue());
+                }
+            }
+        }
+
+        return new EffectivePermissions(set, values, wildcards);
+    }
+
+    private static boolean isWildcard(String name) {
+        return name.equals("*") || name.endsWith(".*");
+    }
+
+    private static long[] grow(long[] bits, int id) {
+        long[] grown = new long[(id >> 6) + 1];
+        System.arraycopy(bits, 0, grown, 0, bits.length);
+        return grown;
+    }
+
+    /**
+     * Checks if the node with the given ID is set
+     *
+     * @param id ID of the node, or -1 for a node that was never interned
+     * @return true if the node is set
+     */
+    boolean isSet(int id) {
+        return id >= 0 && id >> 6 < set.length && (set[id >> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Gets the value of a set node
+     *
+     * @param id ID of a node for which {@link #isSet(int)} is true
+     * @return Value of the node
+     */
+    boolean getValue(int id) {
+        return (values[id >> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Resolves a node against the set wildcard nodes
+     *
+     * @param name Name of the node, in any case
+     * @return 1 or 0 for the value of the longest matching wildcard, or -1 if
+     *     no wildcard matches
+     */
+    int matchWildcard(String name) {
+        return wildcards == null ? -1 : wildcards.match(name);
+    }
+
+    /**
+     * A character trie of wildcard prefixes, with the children of all nodes
+     * kept in a single open addressing table
+     */
+    private static final class WildcardTrie {
+        private long[] keys = new long[16];
+        private int[] children = new int[16];
+        private int entries = 0;
+        private byte[] nodeValues = new byte[] { -1 };
+        private int nodes = 1;
+
+        /**
+         * Adds a wildcard prefix, such as {@code "foo.bar."} for the node
+         * {@code foo.bar.*}, or {@code ""} for {@code *}
+         */
+        void add(String prefix, boolean value) {
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                char c = prefix.charAt(i);
+                int child = child(node, c);
+                if (child < 0) {
+                    child = newNode();
+                    put(node, c, child);
+                }
+                node = child;
+            }
+            nodeValues[node] = (byte) (value ? 1 : 0);
+        }
+
+        int match(String name) {
+            int node = 0;
+            int result = nodeValues[0];
+            for (int i = 0; i < name.length(); i++) {
+                node = child(node, Character.toLowerCase(name.charAt(i)));
+                if (node < 0) {
+                    break;
+                }
+                if (nodeValues[node] >= 0 && i + 1 < name.length()) {
+                    result = nodeValues[node];
+                }
+            }
+            return result;
+        }
+
+        private int newNode() {
+            if (nodes == nodeValues.length) {
+                byte[] grown = new byte[nodes * 2];
+                System.arraycopy(nodeValues, 0, grown, 0, nodes);
+                nodeValues = grown;
+            }
+            nodeValues[nodes] = -1;
+            return nodes++;
+        }
+
+        private int child(int node, char c) {
+            long key = key(node, c);
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return children[slot];
+                }
+            }
+            return -1;
+        }
+
+        private void put(int node, char c, int child) {
+            if ((entries + 1) * 2 > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldChildren = children;
+                keys = new long[oldKeys.length * 2];
+                children = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != 0) {
+                        insert(oldKeys[i], oldChildren[i]);
+                    }
+                }
+            }
+            insert(key(node, c), child);
+            entries++;
+        }
+
+        private void insert(long key, int child) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            children[slot] = child;
+        }
+
+        private static long key(int node, char c) {
+            // Offset by one so that no key is 0, which marks an empty slot
+            return (((long) node << 16) | c) + 1;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -1,246 +1,622 @@
-package org.bukkit.permissions;
-
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.logging.Level;
-import org.bukkit.Bukkit;
-import org.bukkit.plugin.Plugin;
-
-/**
- * Base Permissible for use in any Permissible object via proxy or extension
- */
-public class PermissibleBase implements Permissible {
-    private ServerOperator opable = null;
-    private Permissible parent = this;
-    private final List<PermissionAttachment> attachments = new LinkedList<PermissionAttachment>();
-    private final Map<String, PermissionAttachmentInfo> permissions = new HashMap<String, PermissionAttachmentInfo>();
-
-    public PermissibleBase(ServerOperator opable) {
-        this.opable = opable;
-
-        if (opable instanceof Permissible) {
-            this.parent = (Permissible) opable;
-        }
-
-        recalculatePermissions();
-    }
-
-    public boolean isOp() {
-        if (opable == null) {
-            return false;
-        } else {
-            return opable.isOp();
-        }
-    }
-
-    public void setOp(boolean value) {
-        if (opable == null) {
-            throw new UnsupportedOperationException("Cannot change op value as no ServerOperator is set");
-        } else {
-            opable.setOp(value);
-        }
-    }
-
-    public boolean isPermissionSet(String name) {
-        if (name == null) {
-            throw new IllegalArgumentException("Permission name cannot be null");
-        }
-
-        return permissions.containsKey(name.toLowerCase(java.util.Locale.ENGLISH));
-    }
-
-    public boolean isPermissionSet(Permission perm) {
-        if (perm == null) {
-            throw new IllegalArgumentException("Permission cannot be null");
-        }
-
-        return isPermissionSet(perm.getName());
-    }
-
-    public boolean hasPermission(String inName) {
-        if (inName == null) {
-            throw new IllegalArgumentException("Permission name cannot be null");
-        }
-
-        String name = inName.toLowerCase(java.util.Locale.ENGLISH);
-
-        if (isPermissionSet(name)) {
-            return permissions.get(name).getValue();
-        } else {
-            Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
-
-            if (perm != null) {
-                return perm.getDefault().getValue(isOp());
-            } else {
-                return Permission.DEFAULT_PERMISSION.getValue(isOp());
-            }
-        }
-    }
-
-    public boolean hasPermission(Permission perm) {
-        if (perm == null) {
-            throw new IllegalArgumentException("Permission cannot be null");
-        }
-
-        String name = perm.getName().toLowerCase(java.util.Locale.ENGLISH);
-
-        if (isPermissionSet(name)) {
-            return permissions.get(name).getValue();
-        }
-        return perm.getDefault().getValue(isOp());
-    }
-
-    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
-        if (name == null) {
-            throw new IllegalArgumentException("Permission name cannot be null");
-        } else if (plugin == null) {
-            throw new IllegalArgumentException("Plugin cannot be null");
-        } else if (!plugin.isEnabled()) {
-            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
-        }
-
-        PermissionAttachment result = addAttachment(plugin);
-        result.setPermission(name, value);
-
-        recalculatePermissions();
-
-        return result;
-    }
-
-    public PermissionAttachment addAttachment(Plugin plugin) {
-        if (plugin == null) {
-            throw new IllegalArgumentException("Plugin cannot be null");
-        } else if (!plugin.isEnabled()) {
-            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
-        }
-
-        PermissionAttachment result = new PermissionAttachment(plugin, parent);
-
-        attachments.add(result);
-        recalculatePermissions();
-
-        return result;
-    }
-
-    public void removeAttachment(PermissionAttachment attachment) {
-        if (attachment == null) {
-            throw new IllegalArgumentException("Attachment cannot be null");
-        }
-
-        if (attachments.contains(attachment)) {
-            attachments.remove(attachment);
-            PermissionRemovedExecutor ex = attachment.getRemovalCallback();
-
-            if (ex != null) {
-                ex.attachmentRemoved(attachment);
-            }
-
-            recalculatePermissions();
-        } else {
-            throw new IllegalArgumentException("Given attachment is not part of Permissible object " + parent);
-        }
-    }
-
-    public void recalculatePermissions() {
-        clearPermissions();
-        Set<Permission> defaults = Bukkit.getServer().getPluginManager().getDefaultPermissions(isOp());
-        Bukkit.getServer().getPluginManager().subscribeToDefaultPerms(isOp(), parent);
-
-        for (Permission perm : defaults) {
-            String name = perm.getName().toLowerCase(java.util.Locale.ENGLISH);
-            permissions.put(name, new PermissionAttachmentInfo(parent, name, null, true));
-            Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
-            calculateChildPermissions(perm.getChildren(), false, null);
-        }
-
-        for (PermissionAttachment attachment : attachments) {
-            calculateChildPermissions(attachment.getPermissions(), false, attachment);
-        }
-    }
-
-    public synchronized void clearPermissions() {
-        Set<String> perms = permissions.keySet();
-
-        for (String name : perms) {
-            Bukkit.getServer().getPluginManager().unsubscribeFromPermission(name, parent);
-        }
-
-        Bukkit.getServer().getPluginManager().unsubscribeFromDefaultPerms(false, parent);
-        Bukkit.getServer().getPluginManager().unsubscribeFromDefaultPerms(true, parent);
-
-        permissions.clear();
-    }
-
-    private void calculateChildPermissions(Map<String, Boolean> children, boolean invert, PermissionAttachment attachment) {
-        Set<String> keys = children.keySet();
-
-        for (String name : keys) {
-            Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
-            boolean value = children.get(name) ^ invert;
-            String lname = name.toLowerCase(java.util.Locale.ENGLISH);
-
-            permissions.put(lname, new PermissionAttachmentInfo(parent, lname, attachment, value));
-            Bukkit.getServer().getPluginManager().subscribeToPermission(name, parent);
-
-            if (perm != null) {
-                calculateChildPermissions(perm.getChildren(), !value, attachment);
-            }
-        }
-    }
-
-    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) {
-        if (name == null) {
-            throw new IllegalArgumentException("Permission name cannot be null");
-        } else if (plugin == null) {
-            throw new IllegalArgumentException("Plugin cannot be null");
-        } else if (!plugin.isEnabled()) {
-            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
-        }
-
-        PermissionAttachment result = addAttachment(plugin, ticks);
-
-        if (result != null) {
-            result.setPermission(name, value);
-        }
-
-        return result;
-    }
-
-    public PermissionAttachment addAttachment(Plugin plugin, int ticks) {
-        if (plugin == null) {
-            throw new IllegalArgumentException("Plugin cannot be null");
-        } else if (!plugin.isEnabled()) {
-            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
-        }
-
-        PermissionAttachment result = addAttachment(plugin);
-
-        if (Bukkit.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new RemoveAttachmentRunnable(result), ticks) == -1) {
-            Bukkit.getServer().getLogger().log(Level.WARNING, "Could not add PermissionAttachment to " + parent + " for plugin " + plugin.getDescription().getFullName() + ": Scheduler returned -1");
-            result.remove();
-            return null;
-        } else {
-            return result;
-        }
-    }
-
-    public Set<PermissionAttachmentInfo> getEffectivePermissions() {
-        return new HashSet<PermissionAttachmentInfo>(permissions.values());
-    }
-
-    private class RemoveAttachmentRunnable implements Runnable {
-        private PermissionAttachment attachment;
-
-        public RemoveAttachmentRunnable(PermissionAttachment attachment) {
-            this.attachment = attachment;
-        }
-
-        public void run() {
-            attachment.remove();
-        }
-    }
-}
+package org.bukkit.permissions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
+
+/**
+ * Base Permissible for use in any Permissible object via proxy or extension
+ * <p>
+ * A permission which is not set itself takes the value of the longest set
+ * wildcard covering it, where {@code foo.*} covers every node starting with
+ * {@code foo.} and {@code *} covers every node. Only when no wildcard applies
+ * is the default value of the permission used.
+ * <p>
+ * Permission checks read an immutable snapshot which recalculation replaces
+ * atomically, so {@link #hasPermission(String)} and
+ * {@link #isPermissionSet(String)} can be called from any thread, such as
+ * from asynchronous chat or login handlers, without locking. Changes to the
+ * attachments and recalculation are serialized on this object.
+ */
+public class PermissibleBase implements Permissible {
+    private ServerOperator opable = null;
+    private Permissible parent = this;
+    private final List<PermissionAttachment> attachments = new LinkedList<PermissionAttachment>();
+    private final Map<String, PermissionAttachmentInfo> permissions = new HashMap<String, PermissionAttachmentInfo>();
+    private Expansion defaultExpansion = new Expansion(null, false);
+    private final Map<PermissionAttachment, Expansion> attachmentExpansions = new HashMap<PermissionAttachment, Expansion>();
+    private volatile EffectivePermissions effective = EffectivePermissions.EMPTY;
+    private volatile ResolvedCache resolved = null;
+    private boolean calculated = false;
+    private boolean calculatedOp;
+    private int calculatedRevision;
+
+    public PermissibleBase(ServerOperator opable) {
+        this.opable = opable;
+
+        if (opable instanceof Permissible) {
+            this.parent = (Permissible) opable;
+        }
+
+        recalculatePermissions();
+    }
+
+    public boolean isOp() {
+        if (opable == null) {
+            return false;
+        } else {
+            return opable.isOp();
+        }
+    }
+
+    public void setOp(boolean value) {
+        if (opable == null) {
+            throw new UnsupportedOperationException("Cannot change op value as no ServerOperator is set");
+        } else {
+            opable.setOp(value);
+            resolved = null;
+        }
+    }
+
+    public boolean isPermissionSet(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Permission name cannot be null");
+        }
+
+        return effective.isSet(PermissionNodes.find(name));
+    }
+
+    public boolean isPermissionSet(Permission perm) {
+        if (perm == null) {
+            throw new IllegalArgumentException("Permission cannot be null");
+        }
+
+        return isPermissionSet(perm.getName());
+    }
+
+    public boolean hasPermission(String inName) {
+        if (inName == null) {
+            throw new IllegalArgumentException("Permission name cannot be null");
+        }
+
+        EffectivePermissions effective = this.effective;
+        int id = PermissionNodes.find(inName);
+
+        if (effective.isSet(id)) {
+            return effective.getValue(id);
+        }
+
+        return resolveUnset(inName, id, effective);
+    }
+
+    /**
+     * Gets the permissions currently published, so that several nodes can
+     * be checked against the same state
+     *
+     * @return Current effective permissions
+     */
+    EffectivePermissions getEffective() {
+        return effective;
+    }
+
+    /**
+     * Checks a node already lowercased and resolved to its
+     * {@link PermissionNodes} ID, exactly as {@link #hasPermission(String)}
+     * would
+     *
+     * @param name Lower case name of the node
+     * @param id ID of the node
+     * @param effective Permissions to check against, from
+     *     {@link #getEffective()}
+     * @return Value of the node
+     */
+    boolean hasPermission(String name, int id, EffectivePermissions effective) {
+        if (effective.isSet(id)) {
+            return effective.getValue(id);
+        }
+        return resolveUnset(name, id, effective);
+    }
+
+    /**
+     * Resolves a node which is not set on this object from the wildcards or
+     * the permission default, through the cache of resolved results
+     */
+    private boolean resolveUnset(String inName, int id, EffectivePermissions effective) {
+        ResolvedCache cache = resolvedCache(effective);
+        Boolean cached = cache.results.get(inName);
+        if (cached != null) {
+            return cached;
+        }
+
+        boolean result;
+        int wildcard = effective.matchWildcard(inName);
+        if (wildcard >= 0) {
+            result = wildcard == 1;
+        } else {
+            String name = id >= 0 ? PermissionNodes.getName(id) : inName.toLowerCase(java.util.Locale.ENGLISH);
+            Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
+
+            if (perm != null) {
+                result = perm.getDefault().getValue(cache.op);
+            } else {
+                result = Permission.DEFAULT_PERMISSION.getValue(cache.op);
+            }
+        }
+
+        if (cache.results.size() >= ResolvedCache.CAPACITY) {
+            // Too many distinct nodes are probed, start over rather than grow
+            resolved = null;
+        } else {
+            cache.results.put(inName, result);
+        }
+        return result;
+    }
+
+    public boolean hasPermission(Permission perm) {
+        if (perm == null) {
+            throw new IllegalArgumentException("Permission cannot be null");
+        }
+
+        EffectivePermissions effective = this.effective;
+        int id = PermissionNodes.find(perm.getName());
+
+        if (effective.isSet(id)) {
+            return effective.getValue(id);
+        }
+
+        int wildcard = effective.matchWildcard(perm.getName());
+        if (wildcard >= 0) {
+            return wildcard == 1;
+        }
+        return perm.getDefault().getValue(resolvedCache(effective).op);
+    }
+
+    /**
+     * Gets the cache of resolved unset nodes for the given snapshot,
+     * replacing it if it belongs to another snapshot or registered
+     * permissions changed since it was created
+     */
+    private ResolvedCache resolvedCache(EffectivePermissions effective) {
+        ResolvedCache cache = resolved;
+        int revision = Permission.getRevision();
+        if (cache == null || cache.revision != revision || cache.effective != effective) {
+            cache = new ResolvedCache(revision, isOp(), effective);
+            if (effective == this.effective) {
+                // Never publish results of a snapshot already replaced
+                resolved = cache;
+            }
+        }
+        return cache;
+    }
+
+    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value) {
+        if (name == null) {
+            throw new IllegalArgumentException("Permission name cannot be null");
+        } else if (plugin == null) {
+            throw new IllegalArgumentException("Plugin cannot be null");
+        } else if (!plugin.isEnabled()) {
+            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
+        }
+
+        PermissionAttachment result = addAttachment(plugin);
+        result.setPermission(name, value);
+
+        recalculatePermissions();
+
+        return result;
+    }
+
+    public PermissionAttachment addAttachment(Plugin plugin) {
+        if (plugin == null) {
+            throw new IllegalArgumentException("Plugin cannot be null");
+        } else if (!plugin.isEnabled()) {
+            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
+        }
+
+        PermissionAttachment result = new PermissionAttachment(plugin, parent);
+
+        synchronized (this) {
+            attachments.add(result);
+        }
+        recalculatePermissions();
+
+        return result;
+    }
+
+    public void removeAttachment(PermissionAttachment attachment) {
+        if (attachment == null) {
+            throw new IllegalArgumentException("Attachment cannot be null");
+        }
+
+        boolean removed;
+        synchronized (this) {
+            removed = attachments.remove(attachment);
+        }
+
+        if (removed) {
+            PermissionRemovedExecutor ex = attachment.getRemovalCallback();
+
+            if (ex != null) {
+                ex.attachmentRemoved(attachment);
+            }
+
+            recalculatePermissions();
+        } else {
+            throw new IllegalArgumentException("Given attachment is not part of Permissible object " + parent);
+        }
+    }
+
+    /**
+     * Recalculates the permissions of this object
+     * <p>
+     * Each node set by an attachment, and each default permission, is
+     * expanded into its children separately. A recalculation only expands
+     * again the nodes an attachment set or unset since the last calculation,
+     * and the nodes whose expansion reaches a permission that was registered,
+     * unregistered or changed since then, as recorded by
+     * {@link Permission#invalidateCalculations(String)}. Only the names
+     * those expansions cover are re-resolved and resubscribed, so a change
+     * that does not concern this object costs next to nothing. Everything
+     * is recalculated when the op status changed, or after
+     * {@link Permission#invalidateCalculations()}. The result is published
+     * at once when the recalculation finishes, so a concurrent
+     * {@link #hasPermission(String)} sees either the old or the new
+     * permissions, never a mix.
+     */
+    public synchronized void recalculatePermissions() {
+        boolean op = isOp();
+        int revision = Permission.getRevision();
+        Set<String> changes = calculated && op == calculatedOp ? Permission.getChanges(calculatedRevision, revision) : null;
+        if (changes == null) {
+            recalculateAll(op);
+        } else {
+            recalculateChanged(op, changes);
+        }
+        calculatedRevision = revision;
+    }
+
+    private void recalculateAll(boolean op) {
+        reset();
+        defaultExpansion = new Expansion(null, op);
+        PluginManager pm = Bukkit.getServer().getPluginManager();
+        Set<Permission> defaults = pm.getDefaultPermissions(op);
+        pm.subscribeToDefaultPerms(op, parent);
+
+        for (Permission perm : defaults) {
+            expand(defaultExpansion, perm.getName().toLowerCase(java.util.Locale.ENGLISH), Boolean.TRUE, null);
+        }
+        permissions.putAll(defaultExpansion.flatten());
+
+        for (PermissionAttachment attachment : attachments) {
+            Expansion expansion = new Expansion(attachment, op);
+            attachment.takeChanges();
+            for (Map.Entry<String, Boolean> entry : attachment.getPermissions().entrySet()) {
+                expand(expansion, entry.getKey(), entry.getValue(), null);
+            }
+            attachmentExpansions.put(attachment, expansion);
+            permissions.putAll(expansion.flatten());
+        }
+
+        for (String name : permissions.keySet()) {
+            pm.subscribeToPermission(name, parent);
+        }
+
+        effective = EffectivePermissions.compile(permissions);
+        resolved = null;
+        calculated = true;
+        calculatedOp = op;
+    }
+
+    private void recalculateChanged(boolean op, Set<String> changes) {
+        PluginManager pm = Bukkit.getServer().getPluginManager();
+        Set<String> affected = new HashSet<String>();
+
+        Iterator<Map.Entry<PermissionAttachment, Expansion>> it = attachmentExpansions.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PermissionAttachment, Expansion> entry = it.next();
+            if (!attachments.contains(entry.getKey())) {
+                affected.addAll(entry.getValue().sources.keySet());
+                it.remove();
+            }
+        }
+
+        for (PermissionAttachment attachment : attachments) {
+            Expansion expansion = attachmentExpansions.get(attachment);
+            Set<String> stale = attachment.takeChanges();
+            if (expansion == null) {
+                expansion = new Expansion(attachment, op);
+                attachmentExpansions.put(attachment, expansion);
+                stale = new HashSet<String>(attachment.getPermissions().keySet());
+            } else if (!stale.isEmpty()) {
+                expansion.order = null;
+            }
+
+            for (String name : changes) {
+                stale.addAll(expansion.sources.get(name));
+            }
+            for (String node : stale) {
+                expand(expansion, node, attachment.getPermission(node), affected);
+            }
+        }
+
+        for (String name : changes) {
+            Permission perm = pm.getPermission(name);
+            expand(defaultExpansion, name, perm != null && perm.getDefault().getValue(op) ? Boolean.TRUE : null, affected);
+        }
+        if (!changes.isEmpty()) {
+            defaultExpansion.order = null;
+        }
+        for (String name : changes) {
+            for (String node : new HashSet<String>(defaultExpansion.sources.get(name))) {
+                expand(defaultExpansion, node, defaultExpansion.getValue(node), affected);
+            }
+        }
+
+        for (String name : affected) {
+            PermissionAttachmentInfo info = resolve(name);
+            PermissionAttachmentInfo previous = info == null ? permissions.remove(name) : permissions.put(name, info);
+
+            if (previous == null && info != null) {
+                pm.subscribeToPermission(name, parent);
+            } else if (previous != null && info == null) {
+                pm.unsubscribeFromPermission(name, parent);
+            }
+        }
+
+        effective = effective.update(permissions, affected);
+        resolved = null;
+    }
+
+    /**
+     * Expands a node set in an attachment or the defaults again, replacing
+     * its previous expansion
+     *
+     * @param expansion Expansion of the attachment or defaults
+     * @param node Lower case name of the node
+     * @param value Value of the node, or null to remove it
+     * @param affected Collects the names the old and new expansion cover,
+     *     may be null
+     */
+    private void expand(Expansion expansion, String node, Boolean value, Set<String> affected) {
+        Map<String, PermissionAttachmentInfo> previous = expansion.nodes.remove(node);
+        if (previous != null) {
+            for (String name : previous.keySet()) {
+                expansion.sources.remove(name, node);
+            }
+            if (affected != null) {
+                affected.addAll(previous.keySet());
+            }
+        }
+
+        if (value != null) {
+            Map<String, PermissionAttachmentInfo> result = new HashMap<String, PermissionAttachmentInfo>();
+            calculateChildPermissions(result, Collections.singletonMap(node, value), false, expansion.attachment);
+            expansion.nodes.put(node, result);
+            expansion.values.put(node, value);
+            for (String name : result.keySet()) {
+                expansion.sources.put(name, node);
+            }
+            if (affected != null) {
+                affected.addAll(result.keySet());
+            }
+        } else {
+            expansion.values.remove(node);
+        }
+    }
+
+    /**
+     * Finds the value of a node from the last attachment setting it, or from
+     * the defaults if no attachment does
+     */
+    private PermissionAttachmentInfo resolve(String name) {
+        ListIterator<PermissionAttachment> it = attachments.listIterator(attachments.size());
+        while (it.hasPrevious()) {
+            PermissionAttachmentInfo info = attachmentExpansions.get(it.previous()).get(name);
+            if (info != null) {
+                return info;
+            }
+        }
+        return defaultExpansion.get(name);
+    }
+
+    public synchronized void clearPermissions() {
+        reset();
+        effective = EffectivePermissions.EMPTY;
+        resolved = null;
+    }
+
+    /**
+     * Drops all calculated state except the published snapshot, which stays
+     * readable until it is replaced
+     */
+    private void reset() {
+        Bukkit.getServer().getPluginManager().unsubscribeFromAll(parent);
+
+        permissions.clear();
+        defaultExpansion = new Expansion(null, false);
+        attachmentExpansions.clear();
+        calculated = false;
+    }
+
+    private void calculateChildPermissions(Map<String, PermissionAttachmentInfo> target, Map<String, Boolean> children, boolean invert, PermissionAttachment attachment) {
+        Set<String> keys = children.keySet();
+
+        for (String name : keys) {
+            Permission perm = Bukkit.getServer().getPluginManager().getPermission(name);
+            boolean value = children.get(name) ^ invert;
+            String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+
+            target.put(lname, new PermissionAttachmentInfo(parent, lname, attachment, value));
+
+            if (perm != null) {
+                calculateChildPermissions(target, perm.getChildren(), !value, attachment);
+            }
+        }
+    }
+
+    public PermissionAttachment addAttachment(Plugin plugin, String name, boolean value, int ticks) {
+        if (name == null) {
+            throw new IllegalArgumentException("Permission name cannot be null");
+        } else if (plugin == null) {
+            throw new IllegalArgumentException("Plugin cannot be null");
+        } else if (!plugin.isEnabled()) {
+            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
+        }
+
+        PermissionAttachment result = addAttachment(plugin, ticks);
+
+        if (result != null) {
+            result.setPermission(name, value);
+        }
+
+        return result;
+    }
+
+    public PermissionAttachment addAttachment(Plugin plugin, int ticks) {
+        if (plugin == null) {
+            throw new IllegalArgumentException("Plugin cannot be null");
+        } else if (!plugin.isEnabled()) {
+            throw new IllegalArgumentException("Plugin " + plugin.getDescription().getFullName() + " is disabled");
+        }
+
+        PermissionAttachment result = addAttachment(plugin);
+
+        if (Bukkit.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new RemoveAttachmentRunnable(result), ticks) == -1) {
+            Bukkit.getServer().getLogger().log(Level.WARNING, "Could not add PermissionAttachment to " + parent + " for plugin " + plugin.getDescription().getFullName() + ": Scheduler returned -1");
+            result.remove();
+            return null;
+        } else {
+            return result;
+        }
+    }
+
+    public synchronized Set<PermissionAttachmentInfo> getEffectivePermissions() {
+        return new HashSet<PermissionAttachmentInfo>(permissions.values());
+    }
+
+    /**
+     * The nodes set by one attachment, or the default permissions, each
+     * expanded into its children
+     * <p>
+     * Where the expansions of several nodes cover the same name, the node
+     * which comes last in the attachment or the defaults wins, as if all
+     * nodes were expanded in order into one map.
+     */
+    private static final class Expansion {
+        private final PermissionAttachment attachment;
+        private final boolean op;
+        // Expansion and value of each node
+        private final Map<String, Map<String, PermissionAttachmentInfo>> nodes = new HashMap<String, Map<String, PermissionAttachmentInfo>>();
+        private final Map<String, Boolean> values = new HashMap<String, Boolean>();
+        // Nodes whose expansion covers each name
+        private final SetMultimap<String, String> sources = HashMultimap.create();
+        // Order of the nodes in the attachment or the defaults, or null
+        // until needed
+        private Map<String, Integer> order;
+
+        Expansion(PermissionAttachment attachment, boolean op) {
+            this.attachment = attachment;
+            this.op = op;
+        }
+
+        Boolean getValue(String node) {
+            return values.get(node);
+        }
+
+        PermissionAttachmentInfo get(String name) {
+            Set<String> covering = sources.get(name);
+            if (covering.isEmpty()) {
+                return null;
+            }
+
+            String last = null;
+            int lastPosition = -1;
+            for (String node : covering) {
+                int position = position(node);
+                if (last == null || position > lastPosition) {
+                    last = node;
+                    lastPosition = position;
+                }
+            }
+            return nodes.get(last).get(name);
+        }
+
+        private int position(String node) {
+            if (order == null) {
+                order = new HashMap<String, Integer>();
+                if (attachment != null) {
+                    for (String key : attachment.getPermissions().keySet()) {
+                        order.put(key, order.size());
+                    }
+                } else {
+                    for (Permission perm : Bukkit.getServer().getPluginManager().getDefaultPermissions(op)) {
+                        order.put(perm.getName().toLowerCase(java.util.Locale.ENGLISH), order.size());
+                    }
+                }
+            }
+            Integer position = order.get(node);
+            return position == null ? -1 : position;
+        }
+
+        Map<String, PermissionAttachmentInfo> flatten() {
+            Map<String, PermissionAttachmentInfo> result = new HashMap<String, PermissionAttachmentInfo>();
+            for (String name : sources.keySet()) {
+                result.put(name, get(name));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Results of nodes that are not set on this object, by the name they
+     * were checked with, together with the op status they were resolved for
+     * and the snapshot whose wildcards they were resolved against
+     * <p>
+     * A cache is only used with the snapshot it was created for. It is
+     * dropped when the permissions of this object are recalculated or its
+     * op status is changed through {@link PermissibleBase#setOp(boolean)},
+     * and is not used once any permission was registered, unregistered or
+     * changed, as recorded through {@link Permission#getRevision()}.
+     */
+    private static final class ResolvedCache {
+        private static final int CAPACITY = 4096;
+
+        private final int revision;
+        private final boolean op;
+        private final EffectivePermissions effective;
+        private final ConcurrentMap<String, Boolean> results = new ConcurrentHashMap<String, Boolean>();
+
+        ResolvedCache(int revision, boolean op, EffectivePermissions effective) {
+            this.revision = revision;
+            this.op = op;
+            this.effective = effective;
+        }
+    }
+
+    private class RemoveAttachmentRunnable implements Runnable {
+        private PermissionAttachment attachment;
+
+        public RemoveAttachmentRunnable(PermissionAttachment attachment) {
+            this.attachment = attachment;
+        }
+
+        public void run() {
+            attachment.remove();
+        }
+    }
+}
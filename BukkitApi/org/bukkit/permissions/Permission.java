@@ -1,10 +1,12 @@
 package org.bukkit.permissions;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.apache.commons.lang.Validate;
@@ -17,6 +19,10 @@ import org.bukkit.plugin.PluginManager;
  */
 public class Permission {
     public static final PermissionDefault DEFAULT_PERMISSION = PermissionDefault.OP;
+    private static final int CHANGE_LOG_SIZE = 1024;
+    private static final AtomicInteger revision = new AtomicInteger();
+    // Name changed at each recent revision, or null where everything changed
+    private static final String[] changeLog = new String[CHANGE_LOG_SIZE];
 
     private final String name;
     private final Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
@@ -157,15 +163,89 @@ public class Permission {
      * Recalculates all {@link Permissible}s that contain this permission.
      * <p>
      * This should be called after modifying the children, and is
-     * automatically called after modifying the default value
+     * automatically called after modifying the default value. During a
+     * {@link PluginManager#beginPermissionBatch() permission batch} the
+     * permissibles are only recalculated when the batch ends.
      */
     public void recalculatePermissibles() {
+        invalidateCalculations(name);
         Set<Permissible> perms = getPermissibles();
+        PluginManager pm = Bukkit.getServer().getPluginManager();
 
-        Bukkit.getServer().getPluginManager().recalculatePermissionDefaults(this);
+        pm.recalculatePermissionDefaults(this);
 
         for (Permissible p : perms) {
-            p.recalculatePermissions();
+            pm.recalculatePermissions(p);
+        }
+    }
+
+    /**
+     * Records that registered permissions may have changed in any way.
+     * <p>
+     * A {@link PermissibleBase} normally only re-expands the nodes that
+     * changed since its last calculation. After this call, the next
+     * recalculation of every PermissibleBase expands all of its permissions
+     * again. This is called by the plugin manager when all permissions are
+     * cleared.
+     */
+    public static void invalidateCalculations() {
+        synchronized (changeLog) {
+            changeLog[revision.incrementAndGet() & (CHANGE_LOG_SIZE - 1)] = null;
+        }
+    }
+
+    /**
+     * Records that a permission was registered or unregistered, or that its
+     * default or its children have changed.
+     * <p>
+     * The next recalculation of a {@link PermissibleBase} re-expands only
+     * the nodes that lead to this permission. This is called by {@link
+     * #recalculatePermissibles()} and by the plugin manager when
+     * permissions are added or removed.
+     *
+     * @param name Name of the permission that changed
+     */
+    public static void invalidateCalculations(String name) {
+        Validate.notNull(name, "Name cannot be null");
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        synchronized (changeLog) {
+            changeLog[revision.incrementAndGet() & (CHANGE_LOG_SIZE - 1)] = lname;
+        }
+    }
+
+    /**
+     * Gets the number of times the calculations were invalidated
+     *
+     * @return Revision of the registered permissions
+     */
+    static int getRevision() {
+        return revision.get();
+    }
+
+    /**
+     * Gets the names of the permissions that changed after one revision, up
+     * to and including another
+     *
+     * @param from Revision the changes are made after
+     * @param to Revision the changes are made up to
+     * @return Lower case names of the changed permissions, or null if
+     *     everything must be considered changed
+     */
+    static Set<String> getChanges(int from, int to) {
+        synchronized (changeLog) {
+            if (revision.get() - from > CHANGE_LOG_SIZE) {
+                return null;
+            }
+
+            Set<String> changes = new HashSet<String>();
+            for (int i = from + 1; i - to <= 0; i++) {
+                String name = changeLog[i & (CHANGE_LOG_SIZE - 1)];
+                if (name == null) {
+                    return null;
+                }
+                changes.add(name);
+            }
+            return changes;
         }
     }
 
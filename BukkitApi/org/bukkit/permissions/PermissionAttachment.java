@@ -1,7 +1,9 @@
 package org.bukkit.permissions;
 
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import org.bukkit.plugin.Plugin;
 
 /**
@@ -11,6 +13,7 @@ import org.bukkit.plugin.Plugin;
 public class PermissionAttachment {
     private PermissionRemovedExecutor removed;
     private final Map<String, Boolean> permissions = new LinkedHashMap<String, Boolean>();
+    private final Set<String> changed = new HashSet<String>();
     private final Permissible permissible;
     private final Plugin plugin;
 
@@ -73,7 +76,35 @@ public class PermissionAttachment {
      * @return Copy of all permissions and values expressed by this attachment
      */
     public Map<String, Boolean> getPermissions() {
-        return new LinkedHashMap<String, Boolean>(permissions);
+        synchronized (permissions) {
+            return new LinkedHashMap<String, Boolean>(permissions);
+        }
+    }
+
+    /**
+     * Gets the value of a permission set in this attachment
+     *
+     * @param name Lower case name of the permission
+     * @return Value of the permission, or null if it is not set
+     */
+    Boolean getPermission(String name) {
+        synchronized (permissions) {
+            return permissions.get(name);
+        }
+    }
+
+    /**
+     * Gets the permissions set or unset since the last call, and forgets
+     * them
+     *
+     * @return Lower case names of the changed permissions
+     */
+    Set<String> takeChanges() {
+        synchronized (permissions) {
+            Set<String> result = new HashSet<String>(changed);
+            changed.clear();
+            return result;
+        }
     }
 
     /**
@@ -83,7 +114,11 @@ public class PermissionAttachment {
      * @param value New value of the permission
      */
     public void setPermission(String name, boolean value) {
-        permissions.put(name.toLowerCase(java.util.Locale.ENGLISH), value);
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        synchronized (permissions) {
+            permissions.put(lname, value);
+            changed.add(lname);
+        }
         permissible.recalculatePermissions();
     }
 
@@ -106,7 +141,12 @@ public class PermissionAttachment {
      * @param name Name of the permission to remove
      */
     public void unsetPermission(String name) {
-        permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        synchronized (permissions) {
+            if (permissions.remove(lname) != null) {
+                changed.add(lname);
+            }
+        }
         permissible.recalculatePermissions();
     }
 
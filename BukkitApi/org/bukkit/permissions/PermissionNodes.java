@@ -0,0 +1,107 @@
+package org.bukkit.permissions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * Assigns dense integer IDs to permission node names
+ * <p>
+ * Names are case insensitive: every spelling of a node maps to the ID of
+ * its lower case form. IDs are never reused or released, so they can be used
+ * as indexes into bitsets and arrays for the lifetime of the server.
+ */
+public final class PermissionNodes {
+    private static final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+    private static volatile String[] names = new String[256];
+    private static int count = 0;
+
+    private PermissionNodes() {}
+
+    /**
+     * Gets the ID of a node, assigning one if the node has none yet
+     *
+     * @param name Name of the node, in any case
+     * @return ID of the node
+     */
+    public static int intern(String name) {
+        Validate.notNull(name, "Permission name cannot be null");
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        synchronized (ids) {
+            id = ids.get(lname);
+            if (id == null) {
+                id = count;
+                String[] current = names;
+                if (count == current.length) {
+                    String[] grown = new String[current.length * 2];
+                    System.arraycopy(current, 0, grown, 0, count);
+                    current = grown;
+                }
+                current[count++] = lname;
+                names = current;
+                ids.put(lname, id);
+            }
+            if (!lname.equals(name)) {
+                ids.putIfAbsent(name, id);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the ID of a node without assigning one
+     * <p>
+     * Looking up a spelling that was seen before does not allocate.
+     *
+     * @param name Name of the node, in any case
+     * @return ID of the node, or -1 if the node was never interned
+     */
+    public static int find(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        String lname = name.toLowerCase(java.util.Locale.ENGLISH);
+        if (lname.equals(name) || (id = ids.get(lname)) == null) {
+            return -1;
+        }
+        // Remember this spelling of a known node, so the next lookup is direct
+        ids.putIfAbsent(name, id);
+        return id;
+    }
+
+    /**
+     * Gets the lower case name of a node
+     *
+     * @param id ID of the node
+     * @return Name of the node
+     * @throws IndexOutOfBoundsException If no node has the given ID
+     */
+    public static String getName(int id) {
+        String[] current = names;
+        if (id < 0 || id >= current.length || current[id] == null) {
+            throw new IndexOutOfBoundsException("Unknown permission node " + id);
+        }
+        return current[id];
+    }
+
+    /**
+     * Gets the number of IDs assigned so far
+     * <p>
+     * Every ID is lower than this number.
+     *
+     * @return Number of interned nodes
+     */
+    public static int size() {
+        synchronized (ids) {
+            return count;
+        }
+    }
+}
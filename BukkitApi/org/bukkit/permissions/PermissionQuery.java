@@ -0,0 +1,131 @@
+package org.bukkit.permissions;
+
+import java.util.BitSet;
+
+import org.apache.commons.lang.Validate;
+
+/**
+ * A fixed, ordered list of permission nodes which can be checked against a
+ * {@link Permissible} in one call
+ * <p>
+ * A query is meant to be created once, for example when a plugin builds a
+ * menu, and then evaluated for every player it is shown to:
+ * <pre>
+ * PermissionQuery query = new PermissionQuery("shop.buy", "shop.sell", "shop.admin");
+ * ...
+ * BitSet allowed = query.test(player);
+ * if (allowed.get(1)) {
+ *     // show the sell button
+ * }
+ * </pre>
+ * The node names are lowercased and resolved to their
+ * {@link PermissionNodes} IDs when the query is created. Against a {@link
+ * PermissibleBase}, all nodes are checked against the same state and
+ * evaluating the query does no string processing for nodes which are set.
+ * Other permissibles are asked {@link Permissible#hasPermission(String)}
+ * for each node.
+ */
+public final class PermissionQuery {
+    private final String[] nodes;
+    private final int[] ids;
+
+    /**
+     * Creates a query for the given nodes
+     *
+     * @param nodes Names of the nodes, in the order of the result bits
+     */
+    public PermissionQuery(String... nodes) {
+        Validate.notNull(nodes, "Nodes cannot be null");
+        this.nodes = new String[nodes.length];
+        this.ids = new int[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            Validate.notNull(nodes[i], "Node cannot be null");
+            this.nodes[i] = nodes[i].toLowerCase(java.util.Locale.ENGLISH);
+            this.ids[i] = PermissionNodes.intern(this.nodes[i]);
+        }
+    }
+
+    /**
+     * Gets the number of nodes in this query
+     *
+     * @return Number of nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * Gets the lower case name of a node of this query
+     *
+     * @param index Position of the node
+     * @return Name of the node
+     */
+    public String getNode(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Evaluates this query against a permissible
+     * <p>
+     * Each node is resolved exactly as {@link
+     * Permissible#hasPermission(String)} would resolve it.
+     *
+     * @param permissible Permissible to check
+     * @return Bits set at the positions of the nodes the permissible has
+     */
+    public BitSet test(Permissible permissible) {
+        Validate.notNull(permissible, "Permissible cannot be null");
+        BitSet result = new BitSet(nodes.length);
+
+        if (permissible instanceof PermissibleBase) {
+            PermissibleBase base = (PermissibleBase) permissible;
+            EffectivePermissions effective = base.getEffective();
+            for (int i = 0; i < nodes.length; i++) {
+                if (base.hasPermission(nodes[i], ids[i], effective)) {
+                    result.set(i);
+                }
+            }
+        } else {
+            for (int i = 0; i < nodes.length; i++) {
+                if (permissible.hasPermission(nodes[i])) {
+                    result.set(i);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates this query, of at most 64 nodes, against a permissible
+     *
+     * @param permissible Permissible to check
+     * @return Mask with bit {@code 1L << i} set if the permissible has the
+     *     node at position {@code i}
+     * @throws IllegalStateException If this query has more than 64 nodes
+     */
+    public long testMask(Permissible permissible) {
+        if (nodes.length > 64) {
+            throw new IllegalStateException("Query of " + nodes.length + " nodes does not fit in a mask");
+        }
+
+        Validate.notNull(permissible, "Permissible cannot be null");
+        long mask = 0;
+
+        if (permissible instanceof PermissibleBase) {
+            PermissibleBase base = (PermissibleBase) permissible;
+            EffectivePermissions effective = base.getEffective();
+            for (int i = 0; i < nodes.length; i++) {
+                if (base.hasPermission(nodes[i], ids[i], effective)) {
+                    mask |= 1L << i;
+                }
+            }
+        } else {
+            for (int i = 0; i < nodes.length; i++) {
+                if (permissible.hasPermission(nodes[i])) {
+                    mask |= 1L << i;
+                }
+            }
+        }
+        return mask;
+    }
+}
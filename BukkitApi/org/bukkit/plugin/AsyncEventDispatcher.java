@@ -0,0 +1,130 @@
+package org.bukkit.plugin;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Runs asynchronous event dispatches on an executor, one lane per handler
+ * list
+ * <p>
+ * Events of the same type are dispatched one at a time in the order they
+ * were submitted, while events of different types may run in parallel. Each
+ * lane occupies at most one executor thread at a time, so the number of
+ * threads in use is bounded by the executor.
+ * <p>
+ * Nothing is ever run on the submitting thread. If the executor rejects a
+ * lane, the futures of the events queued on it fail with the {@link
+ * RejectedExecutionException}, and it is up to the caller to retry, drop
+ * the event, or call it synchronously.
+ */
+final class AsyncEventDispatcher {
+    /**
+     * Events dispatched by a lane before it yields its thread to other lanes
+     */
+    private static final int BATCH_SIZE = 64;
+
+    private final Executor executor;
+    private final ConcurrentMap<HandlerList, Lane> lanes = new ConcurrentHashMap<HandlerList, Lane>();
+
+    AsyncEventDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a dispatch on the lane of the given handler list
+     *
+     * @param handlers Handler list of the event
+     * @param event The event
+     * @param dispatch Task passing the event to its listeners
+     * @return Future completed with the event once every listener was
+     *     called, or failed with a {@link RejectedExecutionException} if the
+     *     executor rejected the dispatch
+     */
+    <T extends Event> ListenableFuture<T> submit(HandlerList handlers, T event, Runnable dispatch) {
+        SettableFuture<T> future = SettableFuture.create();
+        Lane lane = lanes.get(handlers);
+        if (lane == null) {
+            Lane created = new Lane();
+            lane = lanes.putIfAbsent(handlers, created);
+            if (lane == null) lane = created;
+        }
+        lane.add(new Dispatch<T>(event, dispatch, future));
+        return future;
+    }
+
+    /**
+     * A queued event, with the future completed once it was dispatched
+     */
+    private static final class Dispatch<T extends Event> {
+        private final T event;
+        private final Runnable dispatch;
+        private final SettableFuture<T> future;
+
+        Dispatch(T event, Runnable dispatch, SettableFuture<T> future) {
+            this.event = event;
+            this.dispatch = dispatch;
+            this.future = future;
+        }
+
+        void run() {
+            try {
+                dispatch.run();
+                future.set(event);
+            } catch (Throwable ex) {
+                future.setException(ex);
+            }
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final Queue<Dispatch<?>> queue = new ConcurrentLinkedQueue<Dispatch<?>>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void add(Dispatch<?> task) {
+            queue.add(task);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    // The executor is saturated or shut down; fail what is
+                    // queued rather than run it on the calling thread
+                    Dispatch<?> task;
+                    while ((task = queue.poll()) != null) {
+                        task.future.setException(ex);
+                    }
+                    scheduled.set(false);
+                    if (!queue.isEmpty()) {
+                        schedule();
+                    }
+                }
+            }
+        }
+
+        public void run() {
+            Dispatch<?> task;
+            int done = 0;
+            while (done++ < BATCH_SIZE && (task = queue.poll()) != null) {
+                task.run();
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.bukkit.plugin;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+
+/**
+ * An {@link EventExecutor} which can handle a batch of events in one call
+ * <p>
+ * When events are called through {@link PluginManager#callEvents(Event[])},
+ * a listener registered with a batch executor receives the whole batch at
+ * once instead of one event at a time. Events called one by one still go
+ * through {@link #execute(Listener, Event)}.
+ * <p>
+ * When timings are enabled, the listener still receives whole batches, and
+ * each batch is recorded as a single call.
+ */
+public interface BatchEventExecutor extends EventExecutor {
+
+    /**
+     * Handles a batch of events passed through the handler list of the
+     * registered event class
+     * <p>
+     * Events of other classes may share that handler list, such as those of
+     * a subclass without a handler list of its own, or those of a superclass
+     * whose handler list the registered class shares. When registered
+     * through {@link PluginManager#registerEvent(Class, Listener,
+     * org.bukkit.event.EventPriority, EventExecutor, Plugin, boolean)}, the
+     * events which are not instances of the registered class are left out of
+     * the batch, so it holds events of that class and its subclasses only.
+     * <p>
+     * If the listener ignores cancelled events, the events that were
+     * already cancelled are left out of the batch too. An empty batch is not
+     * passed on.
+     *
+     * @param listener The registered listener
+     * @param events The events, in the order they were called
+     * @throws EventException If the listener throws an exception
+     */
+    public void execute(Listener listener, Event[] events) throws EventException;
+}
@@ -0,0 +1,30 @@
+package org.bukkit.plugin;
+
+import java.lang.reflect.Method;
+
+import org.bukkit.event.Event;
+
+/**
+ * Creates the {@link EventExecutor}s used to invoke
+ * {@link org.bukkit.event.EventHandler} methods
+ * <p>
+ * A {@link PluginLoader} uses its factory once per handler method when a
+ * listener is registered, so implementations may do expensive work up front
+ * in exchange for cheaper calls.
+ */
+public interface EventExecutorFactory {
+
+    /**
+     * Creates an executor that calls the given handler method
+     * <p>
+     * The returned executor must ignore events that are not instances of
+     * the given event class, and must wrap any exception thrown by the
+     * handler in an {@link org.bukkit.event.EventException}.
+     *
+     * @param eventClass Event class the handler accepts
+     * @param method The handler method, taking exactly one parameter of
+     *     the given event class
+     * @return A new executor for the method
+     */
+    public EventExecutor create(Class<? extends Event> eventClass, Method method);
+}
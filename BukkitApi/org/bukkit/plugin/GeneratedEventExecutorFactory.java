@@ -0,0 +1,259 @@
+package org.bukkit.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.event.Event;
+
+/**
+ * Creates executors by generating a small class per handler method, so that
+ * each call is a plain virtual call the JIT can inline
+ * <p>
+ * Only public, non-static, void methods declared in public classes can be
+ * called directly. Any other handler, or any handler whose executor fails to
+ * generate, is given to the fallback factory instead.
+ */
+public class GeneratedEventExecutorFactory implements EventExecutorFactory {
+    private static final AtomicInteger counter = new AtomicInteger();
+    private static final String EXECUTOR_NAME = "org/bukkit/plugin/GeneratedEventExecutor$";
+    private final EventExecutorFactory fallback;
+
+    public GeneratedEventExecutorFactory() {
+        this(new ReflectionEventExecutorFactory());
+    }
+
+    /**
+     * @param fallback Factory used for methods that cannot be called directly
+     */
+    public GeneratedEventExecutorFactory(EventExecutorFactory fallback) {
+        Validate.notNull(fallback, "Fallback factory cannot be null");
+        this.fallback = fallback;
+    }
+
+    public EventExecutor create(Class<? extends Event> eventClass, Method method) {
+        if (canGenerate(eventClass, method)) {
+            try {
+                String name = EXECUTOR_NAME + counter.incrementAndGet();
+                byte[] bytes = generate(name, eventClass, method);
+                Class<?> clazz = new ExecutorClassLoader(method.getDeclaringClass().getClassLoader()).define(name.replace('/', '.'), bytes);
+                return clazz.asSubclass(EventExecutor.class).getConstructor().newInstance();
+            } catch (InvocationTargetException ex) {
+                // The generated constructor failed, reflection still works
+            } catch (Exception ex) {
+                // Generation or instantiation failed, reflection still works
+            } catch (LinkageError ex) {
+                // Verification or linkage failed, reflection still works
+            }
+        }
+        return fallback.create(eventClass, method);
+    }
+
+    private static boolean canGenerate(Class<? extends Event> eventClass, Method method) {
+        Class<?> owner = method.getDeclaringClass();
+        int modifiers = method.getModifiers();
+
+        return Modifier.isPublic(modifiers)
+            && !Modifier.isStatic(modifiers)
+            && !Modifier.isAbstract(modifiers)
+            && method.getReturnType() == Void.TYPE
+            && Modifier.isPublic(owner.getModifiers())
+            && !owner.isInterface()
+            && owner.getClassLoader() != null
+            && Modifier.isPublic(eventClass.getModifiers())
+            && method.getParameterTypes().length == 1
+            && method.getParameterTypes()[0] == eventClass;
+    }
+
+    /**
+     * Writes a class equivalent to:
+     * <pre>
+     * public final class Name implements EventExecutor {
+     *     public void execute(Listener listener, Event event) throws EventException {
+     *         if (!(event instanceof EventClass)) return;
+     *         try {
+     *             ((Owner) listener).method((EventClass) event);
+     *         } catch (Throwable t) {
+     *             throw new EventException(t);
+     *         }
+     *     }
+     * }
+     * </pre>
+     * Version 49 class files are used so no stack map frames are needed.
+     */
+    private static byte[] generate(String name, Class<?> eventClass, Method method) throws IOException {
+        String owner = internalName(method.getDeclaringClass());
+        String event = internalName(eventClass);
+        ConstantPool pool = new ConstantPool();
+
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef("java/lang/Object");
+        int executorInterface = pool.classRef("org/bukkit/plugin/EventExecutor");
+        int code = pool.utf8("Code");
+        int initName = pool.utf8("<init>");
+        int initDesc = pool.utf8("()V");
+        int executeName = pool.utf8("execute");
+        int executeDesc = pool.utf8("(Lorg/bukkit/event/Listener;Lorg/bukkit/event/Event;)V");
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int eventRef = pool.classRef(event);
+        int ownerRef = pool.classRef(owner);
+        int handler = pool.methodRef(owner, method.getName(), "(L" + event + ";)V");
+        int exceptionRef = pool.classRef("org/bukkit/event/EventException");
+        int exceptionInit = pool.methodRef("org/bukkit/event/EventException", "<init>", "(Ljava/lang/Throwable;)V");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(49);
+        pool.write(out);
+        out.writeShort(0x0001 | 0x0010 | 0x0020); // public final super
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(1);
+        out.writeShort(executorInterface);
+        out.writeShort(0); // fields
+        out.writeShort(2); // methods
+
+        // public <init>()
+        out.writeShort(0x0001);
+        out.writeShort(initName);
+        out.writeShort(initDesc);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(2 + 2 + 4 + 5 + 2 + 2);
+        out.writeShort(1); // max stack
+        out.writeShort(1); // max locals
+        out.writeInt(5);
+        out.writeByte(0x2A); // aload_0
+        out.writeByte(0xB7); // invokespecial
+        out.writeShort(objectInit);
+        out.writeByte(0xB1); // return
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+
+        // public void execute(Listener, Event)
+        out.writeShort(0x0001);
+        out.writeShort(executeName);
+        out.writeShort(executeDesc);
+        out.writeShort(1);
+        out.writeShort(code);
+        out.writeInt(2 + 2 + 4 + 30 + 2 + 8 + 2);
+        out.writeShort(3); // max stack
+        out.writeShort(4); // max locals
+        out.writeInt(30);
+        out.writeByte(0x2C); // 0: aload_2
+        out.writeByte(0xC1); // 1: instanceof event
+        out.writeShort(eventRef);
+        out.writeByte(0x9A); // 4: ifne 8
+        out.writeShort(4);
+        out.writeByte(0xB1); // 7: return
+        out.writeByte(0x2B); // 8: aload_1
+        out.writeByte(0xC0); // 9: checkcast owner
+        out.writeShort(ownerRef);
+        out.writeByte(0x2C); // 12: aload_2
+        out.writeByte(0xC0); // 13: checkcast event
+        out.writeShort(eventRef);
+        out.writeByte(0xB6); // 16: invokevirtual handler
+        out.writeShort(handler);
+        out.writeByte(0xB1); // 19: return
+        out.writeByte(0x4E); // 20: astore_3
+        out.writeByte(0xBB); // 21: new EventException
+        out.writeShort(exceptionRef);
+        out.writeByte(0x59); // 24: dup
+        out.writeByte(0x2D); // 25: aload_3
+        out.writeByte(0xB7); // 26: invokespecial EventException(Throwable)
+        out.writeShort(exceptionInit);
+        out.writeByte(0xBF); // 29: athrow
+        out.writeShort(1); // exception table
+        out.writeShort(8);
+        out.writeShort(19);
+        out.writeShort(20);
+        out.writeShort(0); // any
+        out.writeShort(0); // attributes
+
+        out.writeShort(0); // class attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static final class ConstantPool {
+        private final Map<String, Integer> entries = new HashMap<String, Integer>();
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int size = 1;
+
+        int utf8(String value) throws IOException {
+            Integer index = entries.get("U" + value);
+            if (index == null) {
+                out.writeByte(1);
+                out.writeUTF(value);
+                index = add("U" + value);
+            }
+            return index;
+        }
+
+        int classRef(String name) throws IOException {
+            Integer index = entries.get("C" + name);
+            if (index == null) {
+                int nameIndex = utf8(name);
+                out.writeByte(7);
+                out.writeShort(nameIndex);
+                index = add("C" + name);
+            }
+            return index;
+        }
+
+        int methodRef(String owner, String name, String desc) throws IOException {
+            String key = "M" + owner + '.' + name + desc;
+            Integer index = entries.get(key);
+            if (index == null) {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int descIndex = utf8(desc);
+                out.writeByte(12);
+                out.writeShort(nameIndex);
+                out.writeShort(descIndex);
+                int nameAndType = add("N" + name + desc);
+                out.writeByte(10);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+                index = add(key);
+            }
+            return index;
+        }
+
+        private int add(String key) {
+            int index = size++;
+            entries.put(key, index);
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(size);
+            bytes.writeTo(target);
+        }
+    }
+
+    private static final class ExecutorClassLoader extends ClassLoader {
+        ExecutorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.bukkit.plugin;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long a listener takes to handle events
+ * <p>
+ * Every sample updates the count, total, minimum, maximum, a fixed-bucket
+ * latency histogram and the total of the current tick. All storage is
+ * allocated up front and updated atomically, so recording is safe from
+ * synchronous and asynchronous events alike and never allocates.
+ * <p>
+ * The histogram has eight buckets per power of two, so percentiles are
+ * accurate to within about 6%. Per-tick totals are kept for the last
+ * {@link #TICK_HISTORY} ticks, as counted by {@link #advanceTick()}.
+ */
+public final class ListenerTimings {
+    /**
+     * Number of ticks for which per-tick totals are kept
+     */
+    public static final int TICK_HISTORY = 100;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    /**
+     * Per-tick slots pack the total into the low bits and the tick's lap of
+     * the history into the high bits, so both are replaced by one CAS
+     */
+    private static final int TOTAL_BITS = 40;
+    private static final long TOTAL_MASK = (1L << TOTAL_BITS) - 1;
+    private static final long LAP_MASK = (1L << (64 - TOTAL_BITS)) - 1;
+    private static final AtomicLong currentTick = new AtomicLong();
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong minTime = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxTime = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray tickTotals = new AtomicLongArray(TICK_HISTORY);
+
+    /**
+     * Starts a new tick for per-tick totals
+     * <p>
+     * This is meant to be called by the server once at the start of every
+     * tick.
+     */
+    public static void advanceTick() {
+        currentTick.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of the current tick, as counted by
+     * {@link #advanceTick()}
+     *
+     * @return The current tick
+     */
+    public static long getCurrentTick() {
+        return currentTick.get();
+    }
+
+    /**
+     * Records a single call
+     *
+     * @param nanos Duration of the call in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        count.incrementAndGet();
+        totalTime.addAndGet(nanos);
+        histogram.incrementAndGet(bucketOf(nanos));
+
+        long min;
+        while (nanos < (min = minTime.get()) && !minTime.compareAndSet(min, nanos));
+        long max;
+        while (nanos > (max = maxTime.get()) && !maxTime.compareAndSet(max, nanos));
+
+        long tick = currentTick.get();
+        int slot = (int) (tick % TICK_HISTORY);
+        long lap = lapOf(tick);
+        long packed;
+        long total;
+        do {
+            packed = tickTotals.get(slot);
+            total = (packed >>> TOTAL_BITS) == lap ? packed & TOTAL_MASK : 0;
+            total = Math.min(total + nanos, TOTAL_MASK);
+        } while (!tickTotals.compareAndSet(slot, packed, (lap << TOTAL_BITS) | total));
+    }
+
+    /**
+     * Clears all recorded samples
+     */
+    public void reset() {
+        count.set(0);
+        totalTime.set(0);
+        minTime.set(Long.MAX_VALUE);
+        maxTime.set(0);
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram.set(i, 0);
+        }
+        for (int i = 0; i < TICK_HISTORY; i++) {
+            tickTotals.set(i, 0);
+        }
+    }
+
+    /**
+     * Gets the number of recorded calls
+     *
+     * @return Number of calls
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Gets the total duration of all recorded calls
+     *
+     * @return Total time in nanoseconds
+     */
+    public long getTotalTime() {
+        return totalTime.get();
+    }
+
+    /**
+     * Gets the shortest recorded call
+     *
+     * @return Minimum time in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMinTime() {
+        long min = minTime.get();
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    /**
+     * Gets the longest recorded call
+     *
+     * @return Maximum time in nanoseconds
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Estimates a percentile of the recorded call durations from the
+     * histogram
+     *
+     * @param percentile Percentile between 0 and 100, such as 99.9
+     * @return Estimated duration in nanoseconds, or 0 if nothing was
+     *     recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketMidpoint(i), getMaxTime());
+            }
+        }
+        return getMaxTime();
+    }
+
+    /**
+     * Gets the time spent in the given tick, if it is among the last
+     * {@link #TICK_HISTORY} ticks
+     *
+     * @param tick The tick number
+     * @return Time in nanoseconds, or 0 if the tick is too old or nothing
+     *     was recorded in it. Totals are capped at about 18 minutes.
+     */
+    public long getTickTime(long tick) {
+        if (tick < 0) {
+            return 0;
+        }
+        long packed = tickTotals.get((int) (tick % TICK_HISTORY));
+        return (packed >>> TOTAL_BITS) == lapOf(tick) ? packed & TOTAL_MASK : 0;
+    }
+
+    /**
+     * Gets the largest time spent in any of the last {@link #TICK_HISTORY}
+     * ticks
+     *
+     * @return Time in nanoseconds
+     */
+    public long getMaxTickTime() {
+        long tick = currentTick.get();
+        long max = 0;
+        for (long i = Math.max(0, tick - TICK_HISTORY + 1); i <= tick; i++) {
+            max = Math.max(max, getTickTime(i));
+        }
+        return max;
+    }
+
+    private static long lapOf(long tick) {
+        return (tick / TICK_HISTORY) & LAP_MASK;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long bucketMidpoint(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = bucket % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return ((SUB_BUCKETS + sub) * width) + width / 2;
+    }
+}
@@ -0,0 +1,315 @@
+package org.bukkit.plugin;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.permissions.Permissible;
+import org.bukkit.permissions.PermissionNodes;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tracks which {@link Permissible}s are subscribed to which permissions and
+ * default permission lists
+ * <p>
+ * Every subscribed permissible gets a small integer handle, and the
+ * subscribers of a permission are kept as a set of handles indexed by the
+ * {@link PermissionNodes} ID of the permission. Permissibles are compared
+ * by identity.
+ * <p>
+ * Subscribers are only removed by unsubscribing, normally through
+ * {@link #unsubscribeAll(Permissible)} when a permissible is discarded. The
+ * registry does not keep a permissible alive: it refers to each permissible
+ * through a single weak reference, whatever the number of its
+ * subscriptions, and releases the handles of permissibles that were
+ * collected without being unsubscribed as a fallback. All methods are
+ * synchronized and may be called from any thread.
+ */
+final class PermissionSubscriptions {
+    // Subscribers by identity hash code, chained through Subscriber.next
+    private final Map<Integer, Subscriber> subscribers = new HashMap<Integer, Subscriber>();
+    private final ReferenceQueue<Permissible> collected = new ReferenceQueue<Permissible>();
+    private Subscriber[] byHandle = new Subscriber[64];
+    private int[] freeHandles = new int[16];
+    private int freeCount = 0;
+    private int nextHandle = 0;
+    private IntSet[] byNode = new IntSet[256];
+    private final IntSet[] defaults = new IntSet[] { new IntSet(), new IntSet() };
+
+    synchronized void subscribe(String permission, Permissible permissible) {
+        purge();
+        int node = PermissionNodes.intern(permission);
+        Subscriber subscriber = subscriber(permissible);
+        if (subscriber.nodes.add(node)) {
+            if (node >= byNode.length) {
+                IntSet[] grown = new IntSet[Math.max(byNode.length * 2, node + 1)];
+                System.arraycopy(byNode, 0, grown, 0, byNode.length);
+                byNode = grown;
+            }
+            if (byNode[node] == null) {
+                byNode[node] = new IntSet();
+            }
+            byNode[node].add(subscriber.handle);
+        }
+    }
+
+    synchronized void unsubscribe(String permission, Permissible permissible) {
+        purge();
+        Subscriber subscriber = find(permissible);
+        int node = PermissionNodes.find(permission);
+        if (subscriber != null && node >= 0 && subscriber.nodes.remove(node)) {
+            byNode[node].remove(subscriber.handle);
+            releaseIfUnused(subscriber);
+        }
+    }
+
+    synchronized Set<Permissible> getSubscribers(String permission) {
+        purge();
+        int node = PermissionNodes.find(permission);
+        return node < 0 || node >= byNode.length ? ImmutableSet.<Permissible>of() : resolve(byNode[node]);
+    }
+
+    synchronized void subscribeToDefaults(boolean op, Permissible permissible) {
+        purge();
+        Subscriber subscriber = subscriber(permissible);
+        defaults[op ? 1 : 0].add(subscriber.handle);
+        subscriber.defaults[op ? 1 : 0] = true;
+    }
+
+    synchronized void unsubscribeFromDefaults(boolean op, Permissible permissible) {
+        purge();
+        Subscriber subscriber = find(permissible);
+        if (subscriber != null && subscriber.defaults[op ? 1 : 0]) {
+            defaults[op ? 1 : 0].remove(subscriber.handle);
+            subscriber.defaults[op ? 1 : 0] = false;
+            releaseIfUnused(subscriber);
+        }
+    }
+
+    synchronized Set<Permissible> getDefaultSubscribers(boolean op) {
+        purge();
+        return resolve(defaults[op ? 1 : 0]);
+    }
+
+    /**
+     * Removes every subscription of a permissible and releases its handle
+     *
+     * @param permissible Permissible to unsubscribe
+     */
+    synchronized void unsubscribeAll(Permissible permissible) {
+        purge();
+        Subscriber subscriber = find(permissible);
+        if (subscriber != null) {
+            release(subscriber);
+        }
+    }
+
+    private Subscriber find(Permissible permissible) {
+        Subscriber subscriber = subscribers.get(System.identityHashCode(permissible));
+        while (subscriber != null && subscriber.get() != permissible) {
+            subscriber = subscriber.next;
+        }
+        return subscriber;
+    }
+
+    private Subscriber subscriber(Permissible permissible) {
+        Subscriber subscriber = find(permissible);
+        if (subscriber == null) {
+            int handle;
+            if (freeCount > 0) {
+                handle = freeHandles[--freeCount];
+            } else {
+                handle = nextHandle++;
+                if (handle == byHandle.length) {
+                    Subscriber[] grown = new Subscriber[handle * 2];
+                    System.arraycopy(byHandle, 0, grown, 0, handle);
+                    byHandle = grown;
+                }
+            }
+            subscriber = new Subscriber(permissible, handle, collected);
+            byHandle[handle] = subscriber;
+            subscriber.next = subscribers.put(subscriber.identity, subscriber);
+        }
+        return subscriber;
+    }
+
+    private void releaseIfUnused(Subscriber subscriber) {
+        if (subscriber.nodes.size() == 0 && !subscriber.defaults[0] && !subscriber.defaults[1]) {
+            release(subscriber);
+        }
+    }
+
+    /**
+     * Drops the subscriptions of a subscriber and makes its handle available
+     * again
+     */
+    private void release(Subscriber subscriber) {
+        if (byHandle[subscriber.handle] != subscriber) {
+            return;
+        }
+
+        Subscriber head = subscribers.get(subscriber.identity);
+        if (head == subscriber) {
+            if (subscriber.next == null) {
+                subscribers.remove(subscriber.identity);
+            } else {
+                subscribers.put(subscriber.identity, subscriber.next);
+            }
+        } else {
+            while (head.next != subscriber) {
+                head = head.next;
+            }
+            head.next = subscriber.next;
+        }
+        subscriber.next = null;
+
+        int[] nodes = subscriber.nodes.toArray();
+        for (int node : nodes) {
+            byNode[node].remove(subscriber.handle);
+        }
+        defaults[0].remove(subscriber.handle);
+        defaults[1].remove(subscriber.handle);
+        subscriber.clear();
+
+        byHandle[subscriber.handle] = null;
+        if (freeCount == freeHandles.length) {
+            int[] grown = new int[freeCount * 2];
+            System.arraycopy(freeHandles, 0, grown, 0, freeCount);
+            freeHandles = grown;
+        }
+        freeHandles[freeCount++] = subscriber.handle;
+    }
+
+    /**
+     * Releases the handles of permissibles that were garbage collected
+     * without being unsubscribed
+     */
+    private void purge() {
+        Reference<? extends Permissible> ref;
+        while ((ref = collected.poll()) != null) {
+            release((Subscriber) ref);
+        }
+    }
+
+    private Set<Permissible> resolve(IntSet handles) {
+        if (handles == null || handles.size() == 0) {
+            return ImmutableSet.of();
+        }
+
+        ImmutableSet.Builder<Permissible> result = ImmutableSet.builder();
+        for (int handle : handles.toArray()) {
+            Permissible permissible = byHandle[handle].get();
+            if (permissible != null) {
+                result.add(permissible);
+            }
+        }
+        return result.build();
+    }
+
+    private static final class Subscriber extends WeakReference<Permissible> {
+        private final int handle;
+        private final int identity;
+        private final IntSet nodes = new IntSet();
+        private final boolean[] defaults = new boolean[2];
+        private Subscriber next;
+
+        Subscriber(Permissible permissible, int handle, ReferenceQueue<Permissible> queue) {
+            super(permissible, queue);
+            this.handle = handle;
+            this.identity = System.identityHashCode(permissible);
+        }
+    }
+
+    /**
+     * A set of non-negative ints using linear probing, with deletions shifting
+     * later entries back instead of leaving tombstones
+     */
+    private static final class IntSet {
+        private static final int EMPTY = -1;
+
+        private int[] table = newTable(8);
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        boolean add(int value) {
+            if ((size + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+            int mask = table.length - 1;
+            int slot = mix(value) & mask;
+            while (table[slot] != EMPTY) {
+                if (table[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = value;
+            size++;
+            return true;
+        }
+
+        boolean remove(int value) {
+            int mask = table.length - 1;
+            int slot = mix(value) & mask;
+            while (table[slot] != value) {
+                if (table[slot] == EMPTY) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            // Move back any later entry whose probe sequence passes the freed slot
+            int free = slot;
+            for (int next = (free + 1) & mask; table[next] != EMPTY; next = (next + 1) & mask) {
+                int home = mix(table[next]) & mask;
+                if (((next - home) & mask) >= ((next - free) & mask)) {
+                    table[free] = table[next];
+                    free = next;
+                }
+            }
+            table[free] = EMPTY;
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            int[] result = new int[size];
+            int i = 0;
+            for (int value : table) {
+                if (value != EMPTY) {
+                    result[i++] = value;
+                }
+            }
+            return result;
+        }
+
+        private void rehash(int capacity) {
+            int[] old = table;
+            table = newTable(capacity);
+            size = 0;
+            for (int value : old) {
+                if (value != EMPTY) {
+                    add(value);
+                }
+            }
+        }
+
+        private static int[] newTable(int capacity) {
+            int[] table = new int[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+
+        private static int mix(int value) {
+            return value * 0x9E3779B9 ^ (value >>> 16);
+        }
+    }
+}
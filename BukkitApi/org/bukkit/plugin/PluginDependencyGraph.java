@@ -0,0 +1,198 @@
+package org.bukkit.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders plugins so that each is loaded after its dependencies
+ * <p>
+ * Hard dependencies must be loaded first. Soft dependencies are honoured
+ * when possible: if only soft dependencies form a cycle, the first plugin
+ * of the cycle, in the order plugins were added, is loaded without waiting
+ * for them. Plugins caught in a cycle of hard dependencies, or depending on
+ * one, cannot be ordered and are reported instead.
+ * <p>
+ * The order is computed in layers. A plugin's layer only depends on earlier
+ * layers, so the plugins within one layer are independent of each other.
+ * Within a layer, plugins keep the order in which they were added.
+ */
+final class PluginDependencyGraph {
+    private final Map<String, Integer> indexes = new LinkedHashMap<String, Integer>();
+    private final List<String> names = new ArrayList<String>();
+    private final List<Collection<String>> hardDependencies = new ArrayList<Collection<String>>();
+    private final List<Collection<String>> softDependencies = new ArrayList<Collection<String>>();
+    private final Map<String, String> unresolved = new LinkedHashMap<String, String>();
+
+    /**
+     * Adds a plugin to be ordered
+     * <p>
+     * Dependencies on plugins which were never added are ignored, since
+     * they cannot affect the order.
+     *
+     * @param name Name of the plugin
+     * @param depend Plugins which must be loaded first
+     * @param softDepend Plugins which should be loaded first if present,
+     *     including those listing this plugin in their loadbefore
+     */
+    void add(String name, Collection<String> depend, Collection<String> softDepend) {
+        indexes.put(name, names.size());
+        names.add(name);
+        hardDependencies.add(depend);
+        softDependencies.add(softDepend);
+    }
+
+    /**
+     * Computes the load order of the added plugins
+     *
+     * @return Layers of plugin names, in load order
+     */
+    List<List<String>> resolve() {
+        int count = names.size();
+        List<List<Integer>> hardDependents = new ArrayList<List<Integer>>(count);
+        List<List<Integer>> softDependents = new ArrayList<List<Integer>>(count);
+        int[] hardPending = new int[count];
+        int[] softPending = new int[count];
+
+        for (int i = 0; i < count; i++) {
+            hardDependents.add(new ArrayList<Integer>());
+            softDependents.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < count; i++) {
+            for (String dependency : hardDependencies.get(i)) {
+                Integer from = indexes.get(dependency);
+                if (from != null) {
+                    hardDependents.get(from).add(i);
+                    hardPending[i]++;
+                }
+            }
+            for (String dependency : softDependencies.get(i)) {
+                Integer from = indexes.get(dependency);
+                if (from != null && from != i) {
+                    softDependents.get(from).add(i);
+                    softPending[i]++;
+                }
+            }
+        }
+
+        List<List<String>> layers = new ArrayList<List<String>>();
+        boolean[] placed = new boolean[count];
+        int remaining = count;
+        List<Integer> ready = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            if (hardPending[i] == 0 && softPending[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        while (remaining > 0) {
+            if (ready.isEmpty()) {
+                // Everything left waits on something; drop the soft
+                // dependencies of the first plugin that only waits on those
+                for (int i = 0; i < count; i++) {
+                    if (!placed[i] && hardPending[i] == 0) {
+                        softPending[i] = 0;
+                        ready.add(i);
+                        break;
+                    }
+                }
+                if (ready.isEmpty()) {
+                    reportCycles(placed, hardDependents);
+                    break;
+                }
+            }
+
+            List<String> layer = new ArrayList<String>(ready.size());
+            List<Integer> next = new ArrayList<Integer>();
+            for (int i : ready) {
+                placed[i] = true;
+                remaining--;
+                layer.add(names.get(i));
+            }
+            for (int i : ready) {
+                for (int dependent : hardDependents.get(i)) {
+                    if (--hardPending[dependent] == 0 && softPending[dependent] == 0 && !placed[dependent]) {
+                        next.add(dependent);
+                    }
+                }
+                for (int dependent : softDependents.get(i)) {
+                    if (--softPending[dependent] == 0 && hardPending[dependent] == 0 && !placed[dependent]) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            layers.add(layer);
+            ready = sorted(next);
+        }
+
+        return layers;
+    }
+
+    /**
+     * Gets the plugins which could not be ordered by the last call to
+     * {@link #resolve()}, with the dependency cycle that prevented it
+     *
+     * @return Cycle description by plugin name
+     */
+    Map<String, String> getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * Describes the hard dependency cycles among the plugins left over
+     */
+    private void reportCycles(boolean[] placed, List<List<Integer>> hardDependents) {
+        int count = names.size();
+        // Walk dependencies backwards: from each plugin to what it waits on
+        List<List<Integer>> waitsOn = new ArrayList<List<Integer>>(count);
+        for (int i = 0; i < count; i++) {
+            waitsOn.add(new ArrayList<Integer>());
+        }
+        for (int from = 0; from < count; from++) {
+            for (int to : hardDependents.get(from)) {
+                if (!placed[from] && !placed[to]) {
+                    waitsOn.get(to).add(from);
+                }
+            }
+        }
+
+        for (int start = 0; start < count; start++) {
+            if (placed[start]) {
+                continue;
+            }
+
+            // Follow unplaced dependencies until a plugin repeats; every
+            // unplaced plugin waits on at least one other, so this ends in a cycle
+            List<Integer> path = new ArrayList<Integer>();
+            int[] position = new int[count];
+            Arrays.fill(position, -1);
+            int current = start;
+            while (position[current] < 0) {
+                position[current] = path.size();
+                path.add(current);
+                current = waitsOn.get(current).get(0);
+            }
+
+            StringBuilder cycle = new StringBuilder();
+            for (int i = position[current]; i < path.size(); i++) {
+                cycle.append(names.get(path.get(i))).append(" -> ");
+            }
+            cycle.append(names.get(current));
+
+            if (position[current] == 0) {
+                unresolved.put(names.get(start), cycle.toString());
+            } else {
+                unresolved.put(names.get(start), "depends on " + cycle);
+            }
+        }
+    }
+
+    private static List<Integer> sorted(List<Integer> indexes) {
+        Collections.sort(indexes);
+        return indexes;
+    }
+}
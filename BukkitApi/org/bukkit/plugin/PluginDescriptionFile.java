@@ -85,6 +85,10 @@ import com.google.common.collect.ImmutableSet;
  *     <td>{@link #isDatabaseEnabled()}</td>
  *     <td>表示是否支持数据库</td>
  * </tr><tr>
+ *     <td><code>parallel-load</code></td>
+ *     <td>{@link #isParallelLoad()}</td>
+ *     <td>表示插件能否与同层的其他插件并行加载</td>
+ * </tr><tr>
  *     <td><code>load</code></td>
  *     <td>{@link #getLoad()}</td>
  *     <td>载入插件的时机</td>
@@ -232,6 +236,11 @@ import com.google.common.collect.ImmutableSet;
  *     <td>{@link #isDatabaseEnabled()}</td>
  *     <td>Indicator to enable database support</td>
  * </tr><tr>
+ *     <td><code>parallel-load</code></td>
+ *     <td>{@link #isParallelLoad()}</td>
+ *     <td>Indicator that the plugin may be loaded concurrently with
+ *         independent plugins</td>
+ * </tr><tr>
  *     <td><code>load</code></td>
  *     <td>{@link #getLoad()}</td>
  *     <td>The phase of server-startup this plugin will load during</td>
@@ -366,6 +375,7 @@ public final class PluginDescriptionFile {
     private String website = null;
     private String prefix = null;
     private boolean database = false;
+    private boolean parallelLoad = false;
     private PluginLoadOrder order = PluginLoadOrder.POSTWORLD;
     private List<Permission> permissions = null;
     private Map<?, ?> lazyPermissions = null;
@@ -593,6 +603,33 @@ public final class PluginDescriptionFile {
         return database;
     }
 
+    /**
+     * Gives if the plugin may be loaded concurrently with other plugins.
+     * <ul>
+     * <li>Plugins are loaded in layers, each after the layers holding its
+     *     {@link #getDepend() dependencies} and {@link #getSoftDepend() soft
+     *     dependencies}. The plugins of a layer which set this entry have
+     *     their class loaders built and main classes instantiated in
+     *     parallel, after the other plugins of that layer were loaded one at
+     *     a time.
+     * <li>Static initializers and the constructor of the main class must
+     *     therefore not rely on other plugins of the same layer, nor on any
+     *     state that is not thread safe.
+     * <li>{@link Plugin#onLoad()} is still called on the server thread.
+     * <li>Valid values include <code>true</code> and <code>false</code>
+     * </ul>
+     * <p>
+     * In the plugin.yml, this entry is named <code>parallel-load</code>.
+     * <p>
+     * Example:
+     * <blockquote><pre>parallel-load: true</pre></blockquote>
+     *
+     * @return if this plugin may be loaded in parallel
+     */
+    public boolean isParallelLoad() {
+        return parallelLoad;
+    }
+
     /**
      * Gives a list of other plugins that the plugin requires.
      * <ul>
@@ -1111,6 +1148,14 @@ public final class PluginDescriptionFile {
             }
         }
 
+        if (map.get("parallel-load") != null) {
+            try {
+                parallelLoad = (Boolean) map.get("parallel-load");
+            } catch (ClassCastException ex) {
+                throw new InvalidDescriptionException(ex, "parallel-load is of wrong type");
+            }
+        }
+
         if (map.get("website") != null) {
             website = map.get("website").toString();
         }
@@ -1209,6 +1254,9 @@ public final class PluginDescriptionFile {
         map.put("main", main);
         map.put("version", version);
         map.put("database", database);
+        if (parallelLoad) {
+            map.put("parallel-load", parallelLoad);
+        }
         map.put("order", order.toString());
         map.put("default-permission", defaultPerm.toString());
 
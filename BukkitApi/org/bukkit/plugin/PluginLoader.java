@@ -16,6 +16,10 @@ public interface PluginLoader {
 
     /**
      * Loads the plugin contained in the specified file
+     * <p>
+     * Plugins which declare {@link PluginDescriptionFile#isParallelLoad()
+     * parallel-load} may be loaded from several threads at once, so a loader
+     * of such plugins must support concurrent calls.
      *
      * @param file File to attempt to load
      * @return Plugin that was contained in the specified file, or null if
@@ -9,6 +9,8 @@ import org.bukkit.event.Listener;
 import org.bukkit.permissions.Permissible;
 import org.bukkit.permissions.Permission;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * Handles all plugin management from the Server
  */
@@ -104,6 +106,54 @@ public interface PluginManager {
      */
     public void callEvent(Event event) throws IllegalStateException;
 
+    /**
+     * Calls a batch of events
+     * <p>
+     * Consecutive events sharing a {@link org.bukkit.event.HandlerList} are
+     * passed through its listeners together: each listener, in priority
+     * order, receives all of them before the next listener receives any.
+     * Listeners registered with a {@link BatchEventExecutor} receive them in
+     * a single call.
+     *
+     * @param events Event details
+     * @throws IllegalStateException Thrown when an asynchronous event is
+     *     fired from synchronous code.
+     */
+    public void callEvents(Event[] events) throws IllegalStateException;
+
+    /**
+     * Calls a batch of events
+     *
+     * @param events Event details
+     * @throws IllegalStateException Thrown when an asynchronous event is
+     *     fired from synchronous code.
+     * @see #callEvents(Event[])
+     */
+    public void callEvents(Iterable<? extends Event> events) throws IllegalStateException;
+
+    /**
+     * Calls an asynchronous event without blocking the caller
+     * <p>
+     * If the server provides an executor for asynchronous events, the event
+     * is passed to its listeners on that executor. Events of the same type
+     * are passed on one at a time, in the order they were called, and each
+     * event still reaches its listeners in priority order. Otherwise the
+     * event is called on the current thread, exactly like
+     * {@link #callEvent(Event)}.
+     *
+     * @param event Event details, which must be asynchronous
+     * @param <T> Type of the event
+     * @return A future completed with the event after every listener has
+     *     been called, or failed with a
+     *     {@link java.util.concurrent.RejectedExecutionException} if the
+     *     executor rejected the event, which is then not called at all
+     * @throws IllegalArgumentException Thrown when the event is not
+     *     asynchronous
+     * @throws IllegalStateException Thrown when there is no executor and
+     *     the event is called from synchronous code
+     */
+    public <T extends Event> ListenableFuture<T> callEventAsync(T event) throws IllegalArgumentException, IllegalStateException;
+
     /**
      * Registers all the events in the given listener class
      *
@@ -276,6 +326,18 @@ public interface PluginManager {
      */
     public Set<Permissible> getDefaultPermSubscriptions(boolean op);
 
+    /**
+     * Unsubscribes the given Permissible from every permission and default
+     * list it is subscribed to.
+     * <p>
+     * Server implementations should call this when a Permissible is
+     * discarded, such as when a player quits, so its subscriptions are
+     * dropped right away instead of when it is garbage collected.
+     *
+     * @param permissible Permissible to unsubscribe
+     */
+    public void unsubscribeFromAll(Permissible permissible);
+
     /**
      * Gets a set of all registered permissions.
      * <p>
@@ -285,6 +347,46 @@ public interface PluginManager {
      */
     public Set<Permission> getPermissions();
 
+    /**
+     * Recalculates the permissions of a {@link Permissible}, or marks it for
+     * recalculation at the end of the current permission batch
+     *
+     * @param permissible Permissible to recalculate
+     * @see #beginPermissionBatch()
+     */
+    public void recalculatePermissions(Permissible permissible);
+
+    /**
+     * Starts a permission batch.
+     * <p>
+     * Until the batch ends, permissibles affected by changes to registered
+     * permissions or their defaults are only marked dirty instead of being
+     * recalculated right away. Batches nest; each call must be paired with
+     * a call to {@link #endPermissionBatch()} on the same thread, usually in
+     * a finally block.
+     * <p>
+     * A batch only defers changes made on the thread that started it.
+     * Changes made meanwhile on other threads, such as from asynchronous
+     * tasks, are recalculated right away as usual.
+     * <p>
+     * {@link #enablePlugin(Plugin)} runs the plugin loader in a batch. A
+     * server that registers the permissions declared in a plugin's
+     * plugin.yml before enabling it should start a batch before registering
+     * them and end it after enabling the plugin, so that they are batched
+     * too.
+     */
+    public void beginPermissionBatch();
+
+    /**
+     * Ends a permission batch.
+     * <p>
+     * When the outermost batch ends, every permissible marked dirty during
+     * it is recalculated once.
+     *
+     * @throws IllegalStateException If no batch was started
+     */
+    public void endPermissionBatch();
+
     /**
      * Returns whether or not timing code should be used for event calls
      *
@@ -0,0 +1,37 @@
+package org.bukkit.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.Listener;
+
+/**
+ * Creates executors which invoke handler methods through
+ * {@link Method#invoke(Object, Object...)}
+ * <p>
+ * This works for any handler signature, including non-public methods, but
+ * every call pays the cost of reflection.
+ */
+public class ReflectionEventExecutorFactory implements EventExecutorFactory {
+
+    public EventExecutor create(final Class<? extends Event> eventClass, final Method method) {
+        method.setAccessible(true);
+
+        return new EventExecutor() {
+            public void execute(Listener listener, Event event) throws EventException {
+                try {
+                    if (!eventClass.isAssignableFrom(event.getClass())) {
+                        return;
+                    }
+                    method.invoke(listener, event);
+                } catch (InvocationTargetException ex) {
+                    throw new EventException(ex.getCause());
+                } catch (Throwable t) {
+                    throw new EventException(t);
+                }
+            }
+        };
+    }
+}
@@ -47,6 +47,15 @@ public class RegisteredListener {
         return priority;
     }
 
+    /**
+     * Gets the executor for this registration
+     *
+     * @return Registered Executor
+     */
+    public EventExecutor getExecutor() {
+        return executor;
+    }
+
     /**
      * Calls the event executor
      *
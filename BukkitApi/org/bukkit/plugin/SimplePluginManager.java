@@ -5,15 +5,22 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -23,7 +30,9 @@ import org.bukkit.Server;
 import org.bukkit.command.Command;
 import org.bukkit.command.PluginCommandYamlParser;
 import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.event.DispatchPlan;
 import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
@@ -32,7 +41,12 @@ import org.bukkit.permissions.Permission;
 import org.bukkit.permissions.PermissionDefault;
 import org.bukkit.util.FileUtil;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 /**
  * Handles all plugin management from the Server
@@ -46,16 +60,37 @@ public final class SimplePluginManager implements PluginManager {
     private final SimpleCommandMap commandMap;
     private final Map<String, Permission> permissions = new HashMap<String, Permission>();
     private final Map<Boolean, Set<Permission>> defaultPerms = new LinkedHashMap<Boolean, Set<Permission>>();
-    private final Map<String, Map<Permissible, Boolean>> permSubs = new HashMap<String, Map<Permissible, Boolean>>();
-    private final Map<Boolean, Map<Permissible, Boolean>> defSubs = new HashMap<Boolean, Map<Permissible, Boolean>>();
+    private final PermissionSubscriptions subscriptions = new PermissionSubscriptions();
+    private final ThreadLocal<PermissionBatch> permissionBatch = new ThreadLocal<PermissionBatch>();
     private boolean useTimings = false;
+    private volatile AsyncEventDispatcher asyncDispatcher = null;
+    private final DispatchPlan.ErrorHandler listenerErrorHandler = new DispatchPlan.ErrorHandler() {
+        public void handle(RegisteredListener registration, Event event, Throwable ex) {
+            if (ex instanceof AuthorNagException) {
+                Plugin plugin = registration.getPlugin();
+
+                if (plugin.isNaggable()) {
+                    plugin.setNaggable(false);
+
+                    server.getLogger().log(Level.SEVERE, String.format(
+                            "Nag author(s): '%s' of '%s' about the following: %s",
+                            plugin.getDescription().getAuthors(),
+                            plugin.getDescription().getFullName(),
+                            ex.getMessage()
+                            ));
+                }
+            } else {
+                server.getLogger().log(Level.SEVERE, "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getDescription().getFullName(), ex);
+            }
+        }
+    };
 
     public SimplePluginManager(Server instance, SimpleCommandMap commandMap) {
         server = instance;
         this.commandMap = commandMap;
 
-        defaultPerms.put(true, new HashSet<Permission>());
-        defaultPerms.put(false, new HashSet<Permission>());
+        defaultPerms.put(true, new LinkedHashSet<Permission>());
+        defaultPerms.put(false, new LinkedHashSet<Permission>());
     }
 
     /**
@@ -96,6 +131,13 @@ public final class SimplePluginManager implements PluginManager {
 
     /**
      * Loads the plugins contained within the specified directory
+     * <p>
+     * The plugin descriptions are read in parallel. Plugins are then loaded
+     * in layers, each after its dependencies and, where no cycle prevents
+     * it, after its soft dependencies. Within a layer, plugins are loaded
+     * one at a time, except those which declare {@link
+     * PluginDescriptionFile#isParallelLoad() parallel-load}: these are
+     * loaded concurrently once the others of their layer are done.
      *
      * @param directory Directory to check for plugins
      * @return A list of all plugins loaded
@@ -111,12 +153,15 @@ public final class SimplePluginManager implements PluginManager {
             updateDirectory = new File(directory, server.getUpdateFolder());
         }
 
-        Map<String, File> plugins = new HashMap<String, File>();
+        Map<String, File> plugins = new LinkedHashMap<String, File>();
+        Set<String> parallelPlugins = new HashSet<String>();
         Set<String> loadedPlugins = new HashSet<String>();
         Map<String, Collection<String>> dependencies = new HashMap<String, Collection<String>>();
         Map<String, Collection<String>> softDependencies = new HashMap<String, Collection<String>>();
 
         // This is where it figures out all possible plugins
+        List<File> files = new ArrayList<File>();
+        List<PluginLoader> loaders = new ArrayList<PluginLoader>();
         for (File file : directory.listFiles()) {
             PluginLoader loader = null;
             for (Pattern filter : filters) {
@@ -128,9 +173,17 @@ public final class SimplePluginManager implements PluginManager {
 
             if (loader == null) continue;
 
+            files.add(file);
+            loaders.add(loader);
+        }
+
+        List<Future<PluginDescriptionFile>> descriptions = scanDescriptions(files, loaders);
+
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
             PluginDescriptionFile description = null;
             try {
-                description = loader.getPluginDescription(file);
+                description = getDescription(descriptions.get(i));
                 String name = description.getName();
                 if (name.equalsIgnoreCase("bukkit") || name.equalsIgnoreCase("minecraft") || name.equalsIgnoreCase("mojang")) {
                     server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "': Restricted Name");
@@ -157,6 +210,11 @@ public final class SimplePluginManager implements PluginManager {
                     directory.getPath()
                     ));
             }
+            if (description.isParallelLoad()) {
+                parallelPlugins.add(description.getName());
+            } else {
+                parallelPlugins.remove(description.getName());
+            }
 
             Collection<String> softDependencySet = description.getSoftDepend();
             if (softDependencySet != null && !softDependencySet.isEmpty()) {
@@ -179,7 +237,7 @@ public final class SimplePluginManager implements PluginManager {
                     if (softDependencies.containsKey(loadBeforeTarget)) {
                         softDependencies.get(loadBeforeTarget).add(description.getName());
                     } else {
-                        // softDependencies is never iterated, so 'ghost' plugins aren't an issue
+                        // Targets which are not installed are ignored by the dependency graph
                         Collection<String> shortSoftDependency = new LinkedList<String>();
                         shortSoftDependency.add(description.getName());
                         softDependencies.put(loadBeforeTarget, shortSoftDependency);
@@ -188,114 +246,186 @@ public final class SimplePluginManager implements PluginManager {
             }
         }
 
-        while (!plugins.isEmpty()) {
-            boolean missingDependency = true;
-            Iterator<String> pluginIterator = plugins.keySet().iterator();
-
-            while (pluginIterator.hasNext()) {
-                String plugin = pluginIterator.next();
-
-                if (dependencies.containsKey(plugin)) {
-                    Iterator<String> dependencyIterator = dependencies.get(plugin).iterator();
-
-                    while (dependencyIterator.hasNext()) {
-                        String dependency = dependencyIterator.next();
+        PluginDependencyGraph graph = new PluginDependencyGraph();
+        for (String plugin : plugins.keySet()) {
+            Collection<String> dependencySet = dependencies.get(plugin);
+            Collection<String> softDependencySet = softDependencies.get(plugin);
+            graph.add(plugin,
+                dependencySet == null ? Collections.<String>emptyList() : dependencySet,
+                softDependencySet == null ? Collections.<String>emptyList() : softDependencySet);
+        }
 
-                        // Dependency loaded
-                        if (loadedPlugins.contains(dependency)) {
-                            dependencyIterator.remove();
+        ExecutorService executor = null;
+        try {
+            for (List<String> layer : graph.resolve()) {
+                List<String> parallel = new ArrayList<String>();
+                for (String plugin : layer) {
+                    File file = plugins.get(plugin);
+                    String missing = findMissingDependency(dependencies.get(plugin), loadedPlugins);
 
-                        // We have a dependency not found
-                        } else if (!plugins.containsKey(dependency)) {
-                            missingDependency = false;
-                            File file = plugins.get(plugin);
-                            pluginIterator.remove();
-                            softDependencies.remove(plugin);
-                            dependencies.remove(plugin);
+                    if (missing != null) {
+                        server.getLogger().log(
+                            Level.SEVERE,
+                            "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'",
+                            new UnknownDependencyException(missing));
+                        continue;
+                    }
 
-                            server.getLogger().log(
-                                Level.SEVERE,
-                                "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'",
-                                new UnknownDependencyException(dependency));
-                            break;
-                        }
+                    if (parallelPlugins.contains(plugin)) {
+                        parallel.add(plugin);
+                        continue;
                     }
 
-                    if (dependencies.containsKey(plugin) && dependencies.get(plugin).isEmpty()) {
-                        dependencies.remove(plugin);
+                    try {
+                        result.add(loadPlugin(file));
+                        loadedPlugins.add(plugin);
+                    } catch (InvalidPluginException ex) {
+                        server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
                     }
                 }
-                if (softDependencies.containsKey(plugin)) {
-                    Iterator<String> softDependencyIterator = softDependencies.get(plugin).iterator();
 
-                    while (softDependencyIterator.hasNext()) {
-                        String softDependency = softDependencyIterator.next();
-
-                        // Soft depend is no longer around
-                        if (!plugins.containsKey(softDependency)) {
-                            softDependencyIterator.remove();
-                        }
-                    }
+                if (parallel.size() > 1 && executor == null) {
+                    int threads = Math.min(parallelPlugins.size(), Runtime.getRuntime().availableProcessors());
+                    executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Plugin Loader #%d").setDaemon(true).build());
+                }
 
-                    if (softDependencies.get(plugin).isEmpty()) {
-                        softDependencies.remove(plugin);
-                    }
+                List<Future<Plugin>> created = new ArrayList<Future<Plugin>>(parallel.size());
+                for (String plugin : parallel) {
+                    PluginCreation creation = new PluginCreation(plugins.get(plugin));
+                    created.add(parallel.size() > 1 ? executor.submit(creation) : creation.run());
                 }
-                if (!(dependencies.containsKey(plugin) || softDependencies.containsKey(plugin)) && plugins.containsKey(plugin)) {
-                    // We're clear to load, no more soft or hard dependencies left
-                    File file = plugins.get(plugin);
-                    pluginIterator.remove();
-                    missingDependency = false;
 
+                // Registered in layer order, so the plugin list does not
+                // depend on which thread finished first
+                for (int i = 0; i < parallel.size(); i++) {
+                    File file = plugins.get(parallel.get(i));
                     try {
-                        result.add(loadPlugin(file));
-                        loadedPlugins.add(plugin);
-                        continue;
+                        result.add(addPlugin(getPlugin(created.get(i))));
+                        loadedPlugins.add(parallel.get(i));
                     } catch (InvalidPluginException ex) {
                         server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
                     }
                 }
             }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
 
-            if (missingDependency) {
-                // We now iterate over plugins until something loads
-                // This loop will ignore soft dependencies
-                pluginIterator = plugins.keySet().iterator();
+        for (Map.Entry<String, String> entry : graph.getUnresolved().entrySet()) {
+            File file = plugins.get(entry.getKey());
+            server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "': circular dependency detected (" + entry.getValue() + ")");
+        }
 
-                while (pluginIterator.hasNext()) {
-                    String plugin = pluginIterator.next();
+        return result.toArray(new Plugin[result.size()]);
+    }
 
-                    if (!dependencies.containsKey(plugin)) {
-                        softDependencies.remove(plugin);
-                        missingDependency = false;
-                        File file = plugins.get(plugin);
-                        pluginIterator.remove();
+    /**
+     * Reads the descriptions of the given plugin files, in parallel when
+     * there are several
+     *
+     * @param files Plugin files
+     * @param loaders Loader for each file
+     * @return Pending description for each file
+     */
+    private List<Future<PluginDescriptionFile>> scanDescriptions(List<File> files, List<PluginLoader> loaders) {
+        List<Future<PluginDescriptionFile>> descriptions = new ArrayList<Future<PluginDescriptionFile>>(files.size());
+        int threads = Math.min(files.size(), Runtime.getRuntime().availableProcessors());
 
-                        try {
-                            result.add(loadPlugin(file));
-                            loadedPlugins.add(plugin);
-                            break;
-                        } catch (InvalidPluginException ex) {
-                            server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "'", ex);
-                        }
-                    }
-                }
-                // We have no plugins left without a depend
-                if (missingDependency) {
-                    softDependencies.clear();
-                    dependencies.clear();
-                    Iterator<File> failedPluginIterator = plugins.values().iterator();
-
-                    while (failedPluginIterator.hasNext()) {
-                        File file = failedPluginIterator.next();
-                        failedPluginIterator.remove();
-                        server.getLogger().log(Level.SEVERE, "Could not load '" + file.getPath() + "' in folder '" + directory.getPath() + "': circular dependency detected");
-                    }
+        if (threads <= 1) {
+            for (int i = 0; i < files.size(); i++) {
+                descriptions.add(new DescriptionScan(loaders.get(i), files.get(i)).run());
+            }
+            return descriptions;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Plugin Description Scanner #%d").setDaemon(true).build());
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                descriptions.add(executor.submit(new DescriptionScan(loaders.get(i), files.get(i))));
+            }
+        } finally {
+            // Submitted scans still run to completion
+            executor.shutdown();
+        }
+        return descriptions;
+    }
+
+    private static PluginDescriptionFile getDescription(Future<PluginDescriptionFile> description) throws InvalidDescriptionException {
+        try {
+            return Uninterruptibles.getUninterruptibly(description);
+        } catch (ExecutionException ex) {
+            Throwables.propagateIfInstanceOf(ex.getCause(), InvalidDescriptionException.class);
+            throw Throwables.propagate(ex.getCause());
+        }
+    }
+
+    private static Plugin getPlugin(Future<Plugin> plugin) throws InvalidPluginException {
+        try {
+            return Uninterruptibles.getUninterruptibly(plugin);
+        } catch (ExecutionException ex) {
+            Throwables.propagateIfInstanceOf(ex.getCause(), InvalidPluginException.class);
+            throw Throwables.propagate(ex.getCause());
+        }
+    }
+
+    private static String findMissingDependency(Collection<String> dependencies, Set<String> loadedPlugins) {
+        if (dependencies != null) {
+            for (String dependency : dependencies) {
+                if (!loadedPlugins.contains(dependency)) {
+                    return dependency;
                 }
             }
         }
+        return null;
+    }
 
-        return result.toArray(new Plugin[result.size()]);
+    private static final class DescriptionScan implements Callable<PluginDescriptionFile> {
+        private final PluginLoader loader;
+        private final File file;
+
+        DescriptionScan(PluginLoader loader, File file) {
+            this.loader = loader;
+            this.file = file;
+        }
+
+        public PluginDescriptionFile call() throws InvalidDescriptionException {
+            return loader.getPluginDescription(file);
+        }
+
+        /**
+         * Scans on the calling thread
+         */
+        Future<PluginDescriptionFile> run() {
+            FutureTask<PluginDescriptionFile> task = new FutureTask<PluginDescriptionFile>(this);
+            task.run();
+            return task;
+        }
+    }
+
+    /**
+     * Loads a plugin with parallel-load set, without registering it
+     */
+    private final class PluginCreation implements Callable<Plugin> {
+        private final File file;
+
+        PluginCreation(File file) {
+            this.file = file;
+        }
+
+        public Plugin call() throws InvalidPluginException {
+            return createPlugin(file);
+        }
+
+        /**
+         * Loads on the calling thread
+         */
+        Future<Plugin> run() {
+            FutureTask<Plugin> task = new FutureTask<Plugin>(this);
+            task.run();
+            return task;
+        }
     }
 
     /**
@@ -311,6 +441,17 @@ public final class SimplePluginManager implements PluginManager {
      *     be found
      */
     public synchronized Plugin loadPlugin(File file) throws InvalidPluginException, UnknownDependencyException {
+        return addPlugin(createPlugin(file));
+    }
+
+    /**
+     * Loads the plugin in the specified file with the matching loader,
+     * without registering it with this manager
+     * <p>
+     * This does not lock the manager, so plugins with parallel-load set can
+     * be created from several threads at once.
+     */
+    private Plugin createPlugin(File file) throws InvalidPluginException, UnknownDependencyException {
         Validate.notNull(file, "File cannot be null");
 
         checkUpdate(file);
@@ -329,12 +470,16 @@ public final class SimplePluginManager implements PluginManager {
             }
         }
 
-        if (result != null) {
-            plugins.add(result);
-            lookupNames.put(result.getDescription().getName(), result);
+        return result;
+    }
+
+    private synchronized Plugin addPlugin(Plugin plugin) {
+        if (plugin != null) {
+            plugins.add(plugin);
+            lookupNames.put(plugin.getDescription().getName(), plugin);
         }
 
-        return result;
+        return plugin;
     }
 
     private void checkUpdate(File file) {
@@ -400,10 +545,13 @@ public final class SimplePluginManager implements PluginManager {
                 commandMap.registerAll(plugin.getDescription().getName(), pluginCommands);
             }
 
+            beginPermissionBatch();
             try {
                 plugin.getPluginLoader().enablePlugin(plugin);
             } catch (Throwable ex) {
                 server.getLogger().log(Level.SEVERE, "Error occurred (in the plugin loader) while enabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
+            } finally {
+                endPermissionBatch();
             }
 
             HandlerList.bakeAll();
@@ -462,17 +610,21 @@ public final class SimplePluginManager implements PluginManager {
             permissions.clear();
             defaultPerms.get(true).clear();
             defaultPerms.get(false).clear();
+            Permission.invalidateCalculations();
         }
     }
 
     /**
      * Calls an event with the given details.
      * <p>
-     * This method only synchronizes when the event is not asynchronous.
+     * This method only synchronizes when the event is not asynchronous, and
+     * returns immediately when no enabled plugin listens to the event.
      *
      * @param event Event details
      */
     public void callEvent(Event event) {
+        DispatchPlan plan = event.getHandlers().getDispatchPlan();
+
         if (event.isAsynchronous()) {
             if (Thread.holdsLock(this)) {
                 throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from inside synchronized code.");
@@ -480,44 +632,114 @@ public final class SimplePluginManager implements PluginManager {
             if (server.isPrimaryThread()) {
                 throw new IllegalStateException(event.getEventName() + " cannot be triggered asynchronously from primary server thread.");
             }
-            fireEvent(event);
-        } else {
+            fireEvent(event, plan);
+        } else if (!plan.isEmpty()) {
             synchronized (this) {
-                fireEvent(event);
+                fireEvent(event, plan);
             }
         }
     }
 
-    private void fireEvent(Event event) {
-        HandlerList handlers = event.getHandlers();
-        RegisteredListener[] listeners = handlers.getRegisteredListeners();
+    public void callEvents(Iterable<? extends Event> events) {
+        List<Event> list = new ArrayList<Event>();
+        for (Event event : events) {
+            list.add(event);
+        }
+        callEvents(list.toArray(new Event[list.size()]));
+    }
 
-        for (RegisteredListener registration : listeners) {
-            if (!registration.getPlugin().isEnabled()) {
-                continue;
+    /**
+     * Calls a batch of events.
+     * <p>
+     * Consecutive events sharing a handler list and synchronicity are passed
+     * through the listeners as one batch, resolving the handler list once.
+     *
+     * @param events Event details
+     */
+    public void callEvents(Event[] events) {
+        int start = 0;
+        while (start < events.length) {
+            HandlerList handlers = events[start].getHandlers();
+            boolean async = events[start].isAsynchronous();
+            int end = start + 1;
+            while (end < events.length && events[end].getHandlers() == handlers && events[end].isAsynchronous() == async) {
+                end++;
             }
 
-            try {
-                registration.callEvent(event);
-            } catch (AuthorNagException ex) {
-                Plugin plugin = registration.getPlugin();
-
-                if (plugin.isNaggable()) {
-                    plugin.setNaggable(false);
+            Event[] batch;
+            if (start == 0 && end == events.length) {
+                batch = events;
+            } else {
+                batch = new Event[end - start];
+                System.arraycopy(events, start, batch, 0, batch.length);
+            }
+            start = end;
 
-                    server.getLogger().log(Level.SEVERE, String.format(
-                            "Nag author(s): '%s' of '%s' about the following: %s",
-                            plugin.getDescription().getAuthors(),
-                            plugin.getDescription().getFullName(),
-                            ex.getMessage()
-                            ));
+            DispatchPlan plan = handlers.getDispatchPlan();
+            if (async) {
+                if (Thread.holdsLock(this)) {
+                    throw new IllegalStateException(batch[0].getEventName() + " cannot be triggered asynchronously from inside synchronized code.");
+                }
+                if (server.isPrimaryThread()) {
+                    throw new IllegalStateException(batch[0].getEventName() + " cannot be triggered asynchronously from primary server thread.");
+                }
+                plan.dispatchBatch(batch, listenerErrorHandler);
+            } else if (!plan.isEmpty()) {
+                synchronized (this) {
+                    plan.dispatchBatch(batch, listenerErrorHandler);
                 }
-            } catch (Throwable ex) {
-                server.getLogger().log(Level.SEVERE, "Could not pass event " + event.getEventName() + " to " + registration.getPlugin().getDescription().getFullName(), ex);
             }
         }
     }
 
+    public <T extends Event> ListenableFuture<T> callEventAsync(final T event) {
+        if (!event.isAsynchronous()) {
+            throw new IllegalArgumentException(event.getEventName() + " is not asynchronous");
+        }
+
+        AsyncEventDispatcher dispatcher = asyncDispatcher;
+        if (dispatcher == null) {
+            callEvent(event);
+            return Futures.immediateFuture(event);
+        }
+
+        final HandlerList handlers = event.getHandlers();
+        if (!handlers.hasListeners()) {
+            return Futures.immediateFuture(event);
+        }
+        return dispatcher.submit(handlers, event, new Runnable() {
+            public void run() {
+                fireEvent(event, handlers.getDispatchPlan());
+            }
+        });
+    }
+
+    /**
+     * Sets the executor used by {@link #callEventAsync(Event)}
+     * <p>
+     * The executor should have a bounded number of threads. Events of the
+     * same type never run on more than one of its threads at a time. If the
+     * executor rejects a dispatch, such as when its queue is full or it was
+     * shut down, the futures of the events waiting for it fail with the
+     * {@link java.util.concurrent.RejectedExecutionException}; they are never
+     * called on the calling thread instead. An executor with a bounded queue
+     * thereby pushes back on callers, which decide whether to retry, drop
+     * the event or call it synchronously.
+     *
+     * @param executor Executor for asynchronous events, or null to call
+     *     them on the calling thread
+     */
+    public void setAsyncEventExecutor(Executor executor) {
+        asyncDispatcher = executor == null ? null : new AsyncEventDispatcher(executor);
+    }
+
+    private void fireEvent(Event event, DispatchPlan plan) {
+        if (plan.isEmpty()) {
+            return;
+        }
+        plan.dispatch(event, listenerErrorHandler);
+    }
+
     public void registerEvents(Listener listener, Plugin plugin) {
         if (!plugin.isEnabled()) {
             throw new IllegalPluginAccessException("Plugin attempted to register " + listener + " while not enabled");
@@ -555,6 +777,10 @@ public final class SimplePluginManager implements PluginManager {
             throw new IllegalPluginAccessException("Plugin attempted to register " + event + " while not enabled");
         }
 
+        if (executor instanceof BatchEventExecutor) {
+            executor = new TypedBatchEventExecutor(event, (BatchEventExecutor) executor);
+        }
+
         if (useTimings) {
             getEventListeners(event).register(new TimedRegisteredListener(listener, executor, priority, plugin, ignoreCancelled));
         } else {
@@ -611,7 +837,12 @@ public final class SimplePluginManager implements PluginManager {
     }
 
     public void removePermission(String name) {
-        permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
+        Permission perm = permissions.remove(name.toLowerCase(java.util.Locale.ENGLISH));
+        if (perm != null) {
+            defaultPerms.get(true).remove(perm);
+            defaultPerms.get(false).remove(perm);
+            Permission.invalidateCalculations(perm.getName());
+        }
     }
 
     public void recalculatePermissionDefaults(Permission perm) {
@@ -624,6 +855,7 @@ public final class SimplePluginManager implements PluginManager {
     }
 
     private void calculatePermissionDefault(Permission perm) {
+        Permission.invalidateCalculations(perm.getName());
         if ((perm.getDefault() == PermissionDefault.OP) || (perm.getDefault() == PermissionDefault.TRUE)) {
             defaultPerms.get(true).add(perm);
             dirtyPermissibles(true);
@@ -638,77 +870,118 @@ public final class SimplePluginManager implements PluginManager {
         Set<Permissible> permissibles = getDefaultPermSubscriptions(op);
 
         for (Permissible p : permissibles) {
-            p.recalculatePermissions();
+            recalculatePermissions(p);
         }
     }
 
-    public void subscribeToPermission(String permission, Permissible permissible) {
-        String name = permission.toLowerCase(java.util.Locale.ENGLISH);
-        Map<Permissible, Boolean> map = permSubs.get(name);
-
-        if (map == null) {
-            map = new WeakHashMap<Permissible, Boolean>();
-            permSubs.put(name, map);
+    public void recalculatePermissions(Permissible permissible) {
+        PermissionBatch batch = permissionBatch.get();
+        if (batch != null) {
+            batch.dirty.add(permissible);
+        } else {
+            permissible.recalculatePermissions();
         }
-
-        map.put(permissible, true);
     }
 
-    public void unsubscribeFromPermission(String permission, Permissible permissible) {
-        String name = permission.toLowerCase(java.util.Locale.ENGLISH);
-        Map<Permissible, Boolean> map = permSubs.get(name);
+    public void beginPermissionBatch() {
+        PermissionBatch batch = permissionBatch.get();
+        if (batch == null) {
+            batch = new PermissionBatch();
+            permissionBatch.set(batch);
+        }
+        batch.depth++;
+    }
 
-        if (map != null) {
-            map.remove(permissible);
+    public void endPermissionBatch() {
+        PermissionBatch batch = permissionBatch.get();
+        if (batch == null) {
+            throw new IllegalStateException("No permission batch was started");
+        } else if (--batch.depth > 0) {
+            return;
+        }
 
-            if (map.isEmpty()) {
-                permSubs.remove(name);
-            }
+        // Recalculations caused while draining are no longer deferred
+        permissionBatch.remove();
+        for (Permissible permissible : batch.dirty) {
+            permissible.recalculatePermissions();
         }
     }
 
-    public Set<Permissible> getPermissionSubscriptions(String permission) {
-        String name = permission.toLowerCase(java.util.Locale.ENGLISH);
-        Map<Permissible, Boolean> map = permSubs.get(name);
+    /**
+     * The permission batch open on a thread, with the permissibles marked
+     * dirty while it was open
+     */
+    private static final class PermissionBatch {
+        private final Set<Permissible> dirty = new LinkedHashSet<Permissible>();
+        private int depth = 0;
+    }
 
-        if (map == null) {
-            return ImmutableSet.of();
-        } else {
-            return ImmutableSet.copyOf(map.keySet());
+    /**
+     * Leaves the events which are not instances of the registered class out
+     * of the batches passed to a {@link BatchEventExecutor}
+     */
+    private static final class TypedBatchEventExecutor implements BatchEventExecutor {
+        private final Class<? extends Event> type;
+        private final BatchEventExecutor executor;
+
+        TypedBatchEventExecutor(Class<? extends Event> type, BatchEventExecutor executor) {
+            this.type = type;
+            this.executor = executor;
         }
-    }
 
-    public void subscribeToDefaultPerms(boolean op, Permissible permissible) {
-        Map<Permissible, Boolean> map = defSubs.get(op);
+        public void execute(Listener listener, Event event) throws EventException {
+            executor.execute(listener, event);
+        }
 
-        if (map == null) {
-            map = new WeakHashMap<Permissible, Boolean>();
-            defSubs.put(op, map);
+        public void execute(Listener listener, Event[] events) throws EventException {
+            int kept = 0;
+            for (Event event : events) {
+                if (type.isInstance(event)) {
+                    kept++;
+                }
+            }
+            if (kept == 0) {
+                return;
+            } else if (kept < events.length) {
+                Event[] batch = new Event[kept];
+                kept = 0;
+                for (Event event : events) {
+                    if (type.isInstance(event)) {
+                        batch[kept++] = event;
+                    }
+                }
+                events = batch;
+            }
+            executor.execute(listener, events);
         }
+    }
 
-        map.put(permissible, true);
+    public void subscribeToPermission(String permission, Permissible permissible) {
+        subscriptions.subscribe(permission, permissible);
     }
 
-    public void unsubscribeFromDefaultPerms(boolean op, Permissible permissible) {
-        Map<Permissible, Boolean> map = defSubs.get(op);
+    public void unsubscribeFromPermission(String permission, Permissible permissible) {
+        subscriptions.unsubscribe(permission, permissible);
+    }
 
-        if (map != null) {
-            map.remove(permissible);
+    public Set<Permissible> getPermissionSubscriptions(String permission) {
+        return subscriptions.getSubscribers(permission);
+    }
 
-            if (map.isEmpty()) {
-                defSubs.remove(op);
-            }
-        }
+    public void subscribeToDefaultPerms(boolean op, Permissible permissible) {
+        subscriptions.subscribeToDefaults(op, permissible);
+    }
+
+    public void unsubscribeFromDefaultPerms(boolean op, Permissible permissible) {
+        subscriptions.unsubscribeFromDefaults(op, permissible);
     }
 
     public Set<Permissible> getDefaultPermSubscriptions(boolean op) {
-        Map<Permissible, Boolean> map = defSubs.get(op);
+        return subscriptions.getDefaultSubscribers(op);
+    }
 
-        if (map == null) {
-            return ImmutableSet.of();
-        } else {
-            return ImmutableSet.copyOf(map.keySet());
-        }
+    public void unsubscribeFromAll(Permissible permissible) {
+        subscriptions.unsubscribeAll(permissible);
     }
 
     public Set<Permission> getPermissions() {
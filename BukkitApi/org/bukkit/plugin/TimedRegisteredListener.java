@@ -1,5 +1,6 @@
 package org.bukkit.plugin;
 
+import org.bukkit.event.Cancellable;
 import org.bukkit.event.Event;
 import org.bukkit.event.EventException;
 import org.bukkit.event.EventPriority;
@@ -7,12 +8,14 @@ import org.bukkit.event.Listener;
 
 /**
  * Extends RegisteredListener to include timing information
+ * <p>
+ * Both synchronous and asynchronous events are timed, see
+ * {@link ListenerTimings} for what is recorded.
  */
 public class TimedRegisteredListener extends RegisteredListener {
-    private int count;
-    private long totalTime;
-    private Class<? extends Event> eventClass;
-    private boolean multiple = false;
+    private final ListenerTimings timings = new ListenerTimings();
+    private volatile Class<? extends Event> eventClass;
+    private volatile boolean multiple = false;
 
     public TimedRegisteredListener(final Listener pluginListener, final EventExecutor eventExecutor, final EventPriority eventPriority, final Plugin registeredPlugin, final boolean listenCancelled) {
         super(pluginListener, eventExecutor, eventPriority, registeredPlugin, listenCancelled);
@@ -20,21 +23,64 @@ public class TimedRegisteredListener extends RegisteredListener {
 
     @Override
     public void callEvent(Event event) throws EventException {
-        if (event.isAsynchronous()) {
+        recordClass(event.getClass());
+        long start = System.nanoTime();
+        try {
             super.callEvent(event);
+        } finally {
+            timings.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Calls a {@link BatchEventExecutor} with a batch of events, recording
+     * the batch as a single call
+     * <p>
+     * If this listener ignores cancelled events, the events that were
+     * already cancelled are left out of the batch.
+     *
+     * @param events The events, in the order they were called
+     * @throws EventException If an event handler throws an exception.
+     * @throws IllegalStateException If the executor of this listener is not
+     *     a {@link BatchEventExecutor}
+     */
+    public void callEvents(Event[] events) throws EventException {
+        if (!(getExecutor() instanceof BatchEventExecutor)) {
+            throw new IllegalStateException("Executor cannot handle batches");
+        }
+
+        int kept = 0;
+        Event[] batch = new Event[events.length];
+        for (Event event : events) {
+            if (!isIgnoringCancelled() || !(event instanceof Cancellable) || !((Cancellable) event).isCancelled()) {
+                batch[kept++] = event;
+                recordClass(event.getClass());
+            }
+        }
+        if (kept == 0) {
             return;
+        } else if (kept < batch.length) {
+            Event[] trimmed = new Event[kept];
+            System.arraycopy(batch, 0, trimmed, 0, kept);
+            batch = trimmed;
         }
-        count++;
-        Class<? extends Event> newEventClass = event.getClass();
-        if (this.eventClass == null) {
+
+        long start = System.nanoTime();
+        try {
+            ((BatchEventExecutor) getExecutor()).execute(getListener(), batch);
+        } finally {
+            timings.record(System.nanoTime() - start);
+        }
+    }
+
+    private void recordClass(Class<? extends Event> newEventClass) {
+        Class<? extends Event> eventClass = this.eventClass;
+        if (eventClass == null) {
             this.eventClass = newEventClass;
-        } else if (!this.eventClass.equals(newEventClass)) {
+        } else if (!eventClass.equals(newEventClass)) {
             multiple = true;
-            this.eventClass = getCommonSuperclass(newEventClass, this.eventClass).asSubclass(Event.class);
+            this.eventClass = getCommonSuperclass(newEventClass, eventClass).asSubclass(Event.class);
         }
-        long start = System.nanoTime();
-        super.callEvent(event);
-        totalTime += System.nanoTime() - start;
     }
 
     private static Class<?> getCommonSuperclass(Class<?> class1, Class<?> class2) {
@@ -48,8 +94,7 @@ public class TimedRegisteredListener extends RegisteredListener {
      * Resets the call count and total time for this listener
      */
     public void reset() {
-        count = 0;
-        totalTime = 0;
+        timings.reset();
     }
 
     /**
@@ -58,7 +103,7 @@ public class TimedRegisteredListener extends RegisteredListener {
      * @return Times this listener has been called
      */
     public int getCount() {
-        return count;
+        return (int) Math.min(timings.getCount(), Integer.MAX_VALUE);
     }
 
     /**
@@ -67,7 +112,16 @@ public class TimedRegisteredListener extends RegisteredListener {
      * @return Total time for all calls of this listener
      */
     public long getTotalTime() {
-        return totalTime;
+        return timings.getTotalTime();
+    }
+
+    /**
+     * Gets the detailed timings of this listener
+     *
+     * @return The timings recorded for this listener
+     */
+    public ListenerTimings getTimings() {
+        return timings;
     }
 
     /**
@@ -0,0 +1,153 @@
+package org.bukkit.plugin;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang.Validate;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.json.simple.JSONValue;
+
+/**
+ * A point-in-time copy of the timings of every {@link TimedRegisteredListener}
+ * of a set of plugins, which can be written as JSON or CSV
+ * <p>
+ * Rows are sorted by plugin name, event name, listener class and priority.
+ * Listeners equal in all of these, such as two handler methods of one
+ * listener class, keep the order they were registered in, so reports of
+ * two runs can be compared with a plain diff.
+ */
+public final class TimingsReport {
+    private static final String[] COLUMNS = {
+        "plugin", "event", "listener", "priority", "count", "total_ns", "min_ns", "max_ns",
+        "avg_ns", "p50_ns", "p99_ns", "p999_ns", "max_tick_ns"
+    };
+
+    private final List<Row> rows;
+
+    private TimingsReport(List<Row> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Collects the timings of all listeners of the given plugins
+     * <p>
+     * Listeners that have not been called are left out.
+     *
+     * @param plugins Plugins to report on
+     * @return A new report
+     */
+    public static TimingsReport collect(Plugin[] plugins) {
+        Validate.notNull(plugins, "Plugins cannot be null");
+
+        List<Row> rows = new ArrayList<Row>();
+        for (Plugin plugin : plugins) {
+            for (RegisteredListener listener : HandlerList.getRegisteredListeners(plugin)) {
+                if (!(listener instanceof TimedRegisteredListener)) {
+                    continue;
+                }
+                TimedRegisteredListener trl = (TimedRegisteredListener) listener;
+                ListenerTimings timings = trl.getTimings();
+                if (timings.getCount() == 0 || trl.getEventClass() == null) {
+                    continue;
+                }
+                rows.add(new Row(plugin.getDescription().getFullName(), trl.getEventClass().getName() + (trl.hasMultiple() ? "+" : ""), trl.getListener().getClass().getName(), trl.getPriority(), timings));
+            }
+        }
+        // Stable, so ties keep the registration order of the listeners
+        Collections.sort(rows, new Comparator<Row>() {
+            public int compare(Row a, Row b) {
+                for (int i = 0; i < 3; i++) {
+                    int result = ((String) a.values[i]).compareTo((String) b.values[i]);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return a.priority.compareTo(b.priority);
+            }
+        });
+        return new TimingsReport(rows);
+    }
+
+    /**
+     * Writes this report as a JSON array with one object per listener
+     *
+     * @param writer Writer to write to
+     * @throws IOException If the writer fails
+     */
+    public void writeJson(Writer writer) throws IOException {
+        writer.write("[\n");
+        for (int r = 0; r < rows.size(); r++) {
+            Object[] values = rows.get(r).values;
+            writer.write("  {");
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i != 0) {
+                    writer.write(", ");
+                }
+                writer.write('"');
+                writer.write(COLUMNS[i]);
+                writer.write("\": ");
+                if (values[i] instanceof String) {
+                    writer.write('"');
+                    writer.write(JSONValue.escape((String) values[i]));
+                    writer.write('"');
+                } else {
+                    writer.write(values[i].toString());
+                }
+            }
+            writer.write(r == rows.size() - 1 ? "}\n" : "},\n");
+        }
+        writer.write("]\n");
+        writer.flush();
+    }
+
+    /**
+     * Writes this report as CSV with a header line and one line per listener
+     *
+     * @param writer Writer to write to
+     * @throws IOException If the writer fails
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (i != 0) {
+                writer.write(',');
+            }
+            writer.write(COLUMNS[i]);
+        }
+        writer.write('\n');
+        for (Row row : rows) {
+            for (int i = 0; i < COLUMNS.length; i++) {
+                if (i != 0) {
+                    writer.write(',');
+                }
+                String value = row.values[i].toString();
+                if (value.indexOf(',') != -1 || value.indexOf('"') != -1) {
+                    value = '"' + value.replace("\"", "\"\"") + '"';
+                }
+                writer.write(value);
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static final class Row {
+        final Object[] values;
+        final EventPriority priority;
+
+        Row(String plugin, String event, String listener, EventPriority priority, ListenerTimings timings) {
+            long count = timings.getCount();
+            long total = timings.getTotalTime();
+            this.priority = priority;
+            values = new Object[] {
+                plugin, event, listener, priority.name(), count, total, timings.getMinTime(), timings.getMaxTime(),
+                count == 0 ? 0 : total / count, timings.getPercentile(50), timings.getPercentile(99),
+                timings.getPercentile(99.9), timings.getMaxTickTime()
+            };
+        }
+    }
+}
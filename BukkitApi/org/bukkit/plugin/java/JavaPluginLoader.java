@@ -4,14 +4,16 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
@@ -24,13 +26,14 @@ import org.bukkit.Warning.WarningState;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.event.Event;
-import org.bukkit.event.EventException;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.AuthorNagException;
 import org.bukkit.plugin.EventExecutor;
+import org.bukkit.plugin.EventExecutorFactory;
+import org.bukkit.plugin.GeneratedEventExecutorFactory;
 import org.bukkit.plugin.InvalidDescriptionException;
 import org.bukkit.plugin.InvalidPluginException;
 import org.bukkit.plugin.Plugin;
@@ -41,14 +44,28 @@ import org.bukkit.plugin.TimedRegisteredListener;
 import org.bukkit.plugin.UnknownDependencyException;
 import org.yaml.snakeyaml.error.YAMLException;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
 /**
  * 代表一个java插件加载器,允许加载.jar形式的插件.
  */
 public final class JavaPluginLoader implements PluginLoader {
+    private static final int MISSING_CLASS_CACHE_SIZE = 2048;
+
     final Server server;
     private final Pattern[] fileFilters = new Pattern[] { Pattern.compile("\\.jar$"), };
-    private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
+    private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+    // Guarded by itself; plugins with parallel-load set are loaded concurrently
     private final Map<String, PluginClassLoader> loaders = new LinkedHashMap<String, PluginClassLoader>();
+    // The loaders containing each package, and those whose contents are
+    // unknown; only replaced while holding the lock on loaders
+    private final ConcurrentMap<String, List<PluginClassLoader>> packageLoaders = new ConcurrentHashMap<String, List<PluginClassLoader>>();
+    private volatile List<PluginClassLoader> unindexedLoaders = ImmutableList.of();
+    private final Cache<String, Boolean> missingClasses = CacheBuilder.newBuilder().maximumSize(MISSING_CLASS_CACHE_SIZE).build();
+    private volatile int loaderGeneration = 0;
+    private volatile EventExecutorFactory executorFactory = new GeneratedEventExecutorFactory();
 
     /**
      * This class was not meant to be constructed explicitly
@@ -114,10 +131,10 @@ public final class JavaPluginLoader implements PluginLoader {
         }
 
         for (final String pluginName : description.getDepend()) {
-            if (loaders == null) {
-                throw new UnknownDependencyException(pluginName);
+            PluginClassLoader current;
+            synchronized (loaders) {
+                current = loaders.get(pluginName);
             }
-            PluginClassLoader current = loaders.get(pluginName);
 
             if (current == null) {
                 throw new UnknownDependencyException(pluginName);
@@ -133,7 +150,7 @@ public final class JavaPluginLoader implements PluginLoader {
             throw new InvalidPluginException(ex);
         }
 
-        loaders.put(description.getName(), loader);
+        addLoader(description.getName(), loader);
 
         return loader.plugin;
     }
@@ -185,25 +202,130 @@ public final class JavaPluginLoader implements PluginLoader {
 
         if (cachedClass != null) {
             return cachedClass;
-        } else {
-            for (String current : loaders.keySet()) {
-                PluginClassLoader loader = loaders.get(current);
+        } else if (missingClasses.getIfPresent(name) != null) {
+            return null;
+        }
 
-                try {
-                    cachedClass = loader.findClass(name, false);
-                } catch (ClassNotFoundException cnfe) {}
-                if (cachedClass != null) {
-                    return cachedClass;
+        int generation = loaderGeneration;
+        // Searched without holding the lock, which another class loader may
+        // be waiting for
+        List<PluginClassLoader> candidates = packageLoaders.get(PluginClassLoader.getPackageName(name));
+        if (candidates != null && (cachedClass = findClass(candidates, name)) != null) {
+            return cachedClass;
+        }
+        if ((cachedClass = findClass(unindexedLoaders, name)) != null) {
+            return cachedClass;
+        }
+
+        missingClasses.put(name, Boolean.TRUE);
+        if (generation != loaderGeneration) {
+            // A loader was added during the search and may hold the class
+            missingClasses.invalidate(name);
+        }
+        return null;
+    }
+
+    private static Class<?> findClass(List<PluginClassLoader> loaders, String name) {
+        for (PluginClassLoader loader : loaders) {
+            try {
+                return loader.findClass(name, false);
+            } catch (ClassNotFoundException cnfe) {}
+        }
+        return null;
+    }
+
+    /**
+     * Makes the classes of a plugin visible to other plugins, in place of
+     * any plugin loaded before under the same name
+     */
+    private void addLoader(String name, PluginClassLoader loader) {
+        synchronized (loaders) {
+            removeLoader(name);
+            loaders.put(name, loader);
+
+            Set<String> packages = loader.getPackageNames();
+            if (packages == null) {
+                unindexedLoaders = ImmutableList.<PluginClassLoader>builder().addAll(unindexedLoaders).add(loader).build();
+            } else {
+                for (String packageName : packages) {
+                    List<PluginClassLoader> current = packageLoaders.get(packageName);
+                    if (current == null) {
+                        packageLoaders.put(packageName, ImmutableList.of(loader));
+                    } else {
+                        packageLoaders.put(packageName, ImmutableList.<PluginClassLoader>builder().addAll(current).add(loader).build());
+                    }
                 }
             }
+
+            loaderGeneration++;
+            missingClasses.invalidateAll();
         }
-        return null;
     }
 
-    void setClass(final String name, final Class<?> clazz) {
-        if (!classes.containsKey(name)) {
-            classes.put(name, clazz);
+    private void removeLoader(String name) {
+        synchronized (loaders) {
+            PluginClassLoader loader = loaders.remove(name);
+            if (loader == null) {
+                return;
+            }
 
+            Set<String> packages = loader.getPackageNames();
+            if (packages == null) {
+                unindexedLoaders = without(unindexedLoaders, loader);
+            } else {
+                for (String packageName : packages) {
+                    List<PluginClassLoader> remaining = without(packageLoaders.get(packageName), loader);
+                    if (remaining.isEmpty()) {
+                        packageLoaders.remove(packageName);
+                    } else {
+                        packageLoaders.put(packageName, remaining);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves a loader out of the package index, after classes it was not
+     * indexed for became available to it
+     */
+    void unindexLoader(PluginClassLoader loader, Set<String> packages) {
+        synchronized (loaders) {
+            for (String packageName : packages) {
+                List<PluginClassLoader> current = packageLoaders.get(packageName);
+                if (current == null) {
+                    continue;
+                }
+                List<PluginClassLoader> remaining = without(current, loader);
+                if (remaining.isEmpty()) {
+                    packageLoaders.remove(packageName);
+                } else {
+                    packageLoaders.put(packageName, remaining);
+                }
+            }
+
+            // Not registered yet, or registered after it was unindexed
+            if (loaders.containsValue(loader) && !unindexedLoaders.contains(loader)) {
+                unindexedLoaders = ImmutableList.<PluginClassLoader>builder().addAll(unindexedLoaders).add(loader).build();
+            }
+
+            loaderGeneration++;
+            missingClasses.invalidateAll();
+        }
+    }
+
+    private static List<PluginClassLoader> without(List<PluginClassLoader> loaders, PluginClassLoader loader) {
+        ImmutableList.Builder<PluginClassLoader> remaining = ImmutableList.builder();
+        for (PluginClassLoader current : loaders) {
+            if (current != loader) {
+                remaining.add(current);
+            }
+        }
+        return remaining.build();
+    }
+
+    void setClass(final String name, final Class<?> clazz) {
+        if (!classes.containsKey(name) && classes.putIfAbsent(name, clazz) == null) {
             if (ConfigurationSerializable.class.isAssignableFrom(clazz)) {
                 Class<? extends ConfigurationSerializable> serializable = clazz.asSubclass(ConfigurationSerializable.class);
                 ConfigurationSerialization.registerClass(serializable);
@@ -261,7 +383,6 @@ public final class JavaPluginLoader implements PluginLoader {
                 continue;
             }
             final Class<? extends Event> eventClass = checkClass.asSubclass(Event.class);
-            method.setAccessible(true);
             Set<RegisteredListener> eventSet = ret.get(eventClass);
             if (eventSet == null) {
                 eventSet = new HashSet<RegisteredListener>();
@@ -291,20 +412,7 @@ public final class JavaPluginLoader implements PluginLoader {
                 }
             }
 
-            EventExecutor executor = new EventExecutor() {
-                public void execute(Listener listener, Event event) throws EventException {
-                    try {
-                        if (!eventClass.isAssignableFrom(event.getClass())) {
-                            return;
-                        }
-                        method.invoke(listener, event);
-                    } catch (InvocationTargetException ex) {
-                        throw new EventException(ex.getCause());
-                    } catch (Throwable t) {
-                        throw new EventException(t);
-                    }
-                }
-            };
+            EventExecutor executor = executorFactory.create(eventClass, method);
             if (useTimings) {
                 eventSet.add(new TimedRegisteredListener(listener, executor, eh.priority(), plugin, eh.ignoreCancelled()));
             } else {
@@ -314,6 +422,27 @@ public final class JavaPluginLoader implements PluginLoader {
         return ret;
     }
 
+    /**
+     * Gets the factory used to create executors for event handler methods
+     *
+     * @return The executor factory
+     */
+    public EventExecutorFactory getEventExecutorFactory() {
+        return executorFactory;
+    }
+
+    /**
+     * Sets the factory used to create executors for event handler methods
+     * <p>
+     * This only affects listeners registered after the call.
+     *
+     * @param factory The executor factory
+     */
+    public void setEventExecutorFactory(EventExecutorFactory factory) {
+        Validate.notNull(factory, "Factory cannot be null");
+        executorFactory = factory;
+    }
+
     public void enablePlugin(final Plugin plugin) {
         Validate.isTrue(plugin instanceof JavaPlugin, "Plugin is not associated with this PluginLoader");
 
@@ -324,8 +453,10 @@ public final class JavaPluginLoader implements PluginLoader {
 
             String pluginName = jPlugin.getDescription().getName();
 
-            if (!loaders.containsKey(pluginName)) {
-                loaders.put(pluginName, (PluginClassLoader) jPlugin.getClassLoader());
+            synchronized (loaders) {
+                if (!loaders.containsKey(pluginName)) {
+                    addLoader(pluginName, (PluginClassLoader) jPlugin.getClassLoader());
+                }
             }
 
             try {
@@ -358,7 +489,7 @@ public final class JavaPluginLoader implements PluginLoader {
                 server.getLogger().log(Level.SEVERE, "Error occurred while disabling " + plugin.getDescription().getFullName() + " (Is it up to date?)", ex);
             }
 
-            loaders.remove(jPlugin.getDescription().getName());
+            removeLoader(jPlugin.getDescription().getName());
 
             if (cloader instanceof PluginClassLoader) {
                 PluginClassLoader loader = (PluginClassLoader) cloader;
@@ -1,26 +1,56 @@
 package org.bukkit.plugin.java;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
+import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.commons.lang.Validate;
 import org.bukkit.plugin.InvalidPluginException;
 import org.bukkit.plugin.PluginDescriptionFile;
 
+import com.google.common.collect.ImmutableSet;
+
 /**
  * 一个插件类加载器，允许跨插件共享一个加载器.
  */
 final class PluginClassLoader extends URLClassLoader {
+    static {
+        // Plugins load classes from each other, so two loaders locking
+        // themselves and then each other would deadlock. A parallel capable
+        // loader locks per class name instead. registerAsParallelCapable
+        // only exists since Java 7, and is looked up reflectively so this
+        // still runs on Java 6.
+        try {
+            Method method = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+            method.setAccessible(true);
+            method.invoke(null);
+        } catch (NoSuchMethodException ex) {
+            // Java 6, each loader still locks itself as a whole as before
+        } catch (Exception ex) {
+            Logger.getLogger(PluginClassLoader.class.getName()).log(Level.WARNING, "Could not register PluginClassLoader as parallel capable", ex);
+        }
+    }
+
     private final JavaPluginLoader loader;
-    private final Map<String, Class<?>> classes = new HashMap<String, Class<?>>();
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
     private final PluginDescriptionFile description;
     private final File dataFolder;
     private final File file;
+    private volatile Set<String> packages;
     final JavaPlugin plugin;
     private JavaPlugin pluginInit;
     private IllegalStateException pluginState;
@@ -33,6 +63,7 @@ final class PluginClassLoader extends URLClassLoader {
         this.description = description;
         this.dataFolder = dataFolder;
         this.file = file;
+        this.packages = readPackages(file);
 
         try {
             Class<?> jarClass;
@@ -74,7 +105,15 @@ final class PluginClassLoader extends URLClassLoader {
             }
 
             if (result == null) {
-                result = super.findClass(name);
+                try {
+                    result = super.findClass(name);
+                } catch (LinkageError ex) {
+                    // Another thread searching this loader defined the class first
+                    result = findLoadedClass(name);
+                    if (result == null) {
+                        throw ex;
+                    }
+                }
 
                 if (result != null) {
                     loader.setClass(name, result);
@@ -87,10 +126,70 @@ final class PluginClassLoader extends URLClassLoader {
         return result;
     }
 
+    @Override
+    protected void addURL(URL url) {
+        super.addURL(url);
+
+        // The classes behind the new URL are unknown, so this loader must be
+        // searched for every class from now on
+        Set<String> indexed = packages;
+        packages = null;
+        if (indexed != null && loader != null) {
+            loader.unindexLoader(this, indexed);
+        }
+    }
+
     Set<String> getClasses() {
         return classes.keySet();
     }
 
+    /**
+     * Gets the packages containing classes in the plugin jar
+     *
+     * @return Names of the packages, or null if the jar refers to other
+     *     class path entries which were not listed, or URLs were added to
+     *     this loader
+     */
+    Set<String> getPackageNames() {
+        return packages;
+    }
+
+    static String getPackageName(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? "" : className.substring(0, dot);
+    }
+
+    private static Set<String> readPackages(File file) throws InvalidPluginException {
+        JarFile jar = null;
+        try {
+            jar = new JarFile(file);
+            Manifest manifest = jar.getManifest();
+            if (manifest != null && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null) {
+                return null;
+            }
+
+            Set<String> packages = new HashSet<String>();
+            Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                    int slash = name.lastIndexOf('/');
+                    packages.add(slash < 0 ? "" : name.substring(0, slash).replace('/', '.'));
+                }
+            }
+            return ImmutableSet.copyOf(packages);
+        } catch (IOException ex) {
+            throw new InvalidPluginException(ex);
+        } finally {
+            if (jar != null) {
+                try {
+                    jar.close();
+                } catch (IOException ex) {
+                }
+            }
+        }
+    }
+
     synchronized void initialize(JavaPlugin javaPlugin) {
         Validate.notNull(javaPlugin, "Initializing plugin cannot be null");
         Validate.isTrue(javaPlugin.getClass().getClassLoader() == this, "Cannot initialize plugin outside of this class loader");
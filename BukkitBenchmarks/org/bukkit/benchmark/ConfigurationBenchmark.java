@@ -0,0 +1,126 @@
+package org.bukkit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.configuration.ConfigPath;
+import org.bukkit.configuration.ConfigurationSnapshot;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures path lookups on {@link MemorySection}, by string and through a
+ * {@link ConfigPath}, on a {@link ConfigurationSnapshot}, and the YAML round trip of {@link YamlConfiguration}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationBenchmark {
+    @Param({ "1", "4", "8" })
+    public int depth;
+
+    private YamlConfiguration config;
+    private String deepPath;
+    private String missingPath;
+    private ConfigPath compiledPath;
+    private ConfigPath compiledMissingPath;
+    private ConfigurationSnapshot snapshot;
+    private String yaml;
+
+    @Setup
+    public void setup() throws InvalidConfigurationException {
+        config = new YamlConfiguration();
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) {
+                path.append('.');
+            }
+            path.append("section").append(i);
+        }
+        deepPath = path + ".value";
+        missingPath = path + ".missing";
+        compiledPath = new ConfigPath(deepPath);
+        compiledMissingPath = new ConfigPath(missingPath);
+
+        for (int i = 0; i < 64; i++) {
+            config.set(path + ".entry" + i, "value " + i);
+            config.set(path + ".number" + i, i);
+        }
+        config.set(deepPath, 42);
+
+        yaml = config.saveToString();
+        config.loadFromString(yaml);
+        snapshot = ConfigurationSnapshot.of(config);
+    }
+
+    @Benchmark
+    public Object get() {
+        return config.get(deepPath);
+    }
+
+    @Benchmark
+    public int getInt() {
+        return config.getInt(deepPath);
+    }
+
+    @Benchmark
+    public Object getMissing() {
+        return config.get(missingPath);
+    }
+
+    @Benchmark
+    public Object getCompiled() {
+        return compiledPath.get(config);
+    }
+
+    @Benchmark
+    public int getIntCompiled() {
+        return compiledPath.getInt(config);
+    }
+
+    @Benchmark
+    public Object getMissingCompiled() {
+        return compiledMissingPath.get(config);
+    }
+
+    @Benchmark
+    public Object getSnapshot() {
+        return snapshot.get(deepPath);
+    }
+
+    @Benchmark
+    public int getIntSnapshot() {
+        return snapshot.getInt(deepPath);
+    }
+
+    @Benchmark
+    public Object getMissingSnapshot() {
+        return snapshot.get(missingPath);
+    }
+
+    @Benchmark
+    public YamlConfiguration load() throws InvalidConfigurationException {
+        YamlConfiguration loaded = new YamlConfiguration();
+        loaded.loadFromString(yaml);
+        return loaded;
+    }
+
+    @Benchmark
+    public String save() {
+        return config.saveToString();
+    }
+}
@@ -0,0 +1,115 @@
+package org.bukkit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockPhysicsEvent;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.SimplePluginManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SimplePluginManager#callEvent(org.bukkit.event.Event)} with
+ * a growing number of listeners spread over several priorities
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventBusBenchmark {
+    @Param({ "0", "1", "10", "100" })
+    public int listeners;
+
+    private SimplePluginManager pluginManager;
+    private Plugin plugin;
+    private BenchmarkEvent event;
+    private BenchmarkEvent[] batch;
+
+    @Setup
+    public void setup() {
+        pluginManager = StubServer.getPluginManager();
+        plugin = StubServer.createPlugin("EventBusBenchmark");
+        for (int i = 0; i < listeners; i++) {
+            pluginManager.registerEvents(new MixedPriorityListener(), plugin);
+        }
+
+        event = new BenchmarkEvent();
+        batch = new BenchmarkEvent[16];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = new BenchmarkEvent();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        HandlerList.unregisterAll(plugin);
+    }
+
+    @Benchmark
+    public BenchmarkEvent callEvent() {
+        event.setCancelled(false);
+        pluginManager.callEvent(event);
+        return event;
+    }
+
+    @Benchmark
+    public BenchmarkEvent[] callEvents() {
+        for (BenchmarkEvent e : batch) {
+            e.setCancelled(false);
+        }
+        pluginManager.callEvents(batch);
+        return batch;
+    }
+
+    @Benchmark
+    public boolean hasListenersGuard() {
+        return BlockPhysicsEvent.hasListeners();
+    }
+
+    /**
+     * Listens at four priorities; the HIGH handler cancels the event so the
+     * handlers ignoring cancelled events are skipped
+     */
+    public static class MixedPriorityListener implements Listener {
+        @EventHandler(priority = EventPriority.LOW)
+        public void onLow(BenchmarkEvent event) {
+            event.setValue(event.getValue() + 1);
+        }
+
+        @EventHandler
+        public void onNormal(BenchmarkEvent event) {
+            event.setValue(event.getValue() ^ 1);
+        }
+
+        @EventHandler(priority = EventPriority.HIGH)
+        public void onHigh(BenchmarkEvent event) {
+            event.setCancelled(true);
+        }
+
+        @EventHandler(priority = EventPriority.HIGHEST, ignoreCancelled = true)
+        public void onHighest(BenchmarkEvent event) {
+            event.setValue(0);
+        }
+
+        @EventHandler(priority = EventPriority.MONITOR)
+        public void onMonitor(BenchmarkEvent event) {
+            event.getValue();
+        }
+    }
+}
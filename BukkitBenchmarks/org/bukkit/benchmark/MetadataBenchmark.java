@@ -0,0 +1,116 @@
+package org.bukkit.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.metadata.FixedMetadataValue;
+import org.bukkit.metadata.MetadataContainer;
+import org.bukkit.metadata.MetadataKey;
+import org.bukkit.metadata.MetadataStoreBase;
+import org.bukkit.metadata.MetadataValue;
+import org.bukkit.plugin.Plugin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link MetadataStoreBase} reads and writes from several threads
+ * sharing one store, by string and by typed key, and reads from a {@link
+ * MetadataContainer} kept by the subject itself
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetadataBenchmark {
+    private static final int SUBJECTS = 1024;
+
+    private StringMetadataStore store;
+    private Plugin plugin;
+    private String[] subjects;
+    private MetadataValue value;
+    private MetadataKey<Integer> typedKey;
+    private MetadataContainer[] containers;
+
+    @Setup
+    public void setup() {
+        plugin = StubServer.createPlugin("MetadataBenchmark");
+        store = new StringMetadataStore();
+        value = new FixedMetadataValue(plugin, 42);
+        typedKey = new MetadataKey<Integer>(plugin, "key", Integer.class);
+        subjects = new String[SUBJECTS];
+        containers = new MetadataContainer[SUBJECTS];
+        for (int i = 0; i < SUBJECTS; i++) {
+            subjects[i] = "subject-" + i;
+            store.setMetadata(subjects[i], "key", value);
+            store.setMetadata(subjects[i], typedKey, 42);
+            containers[i] = new MetadataContainer();
+            containers[i].set(typedKey, 42);
+        }
+    }
+
+    /**
+     * Per-thread cursor over the subjects, so threads touch different keys
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            return next++ & (SUBJECTS - 1);
+        }
+    }
+
+    @Benchmark
+    public List<MetadataValue> get(Cursor cursor) {
+        return store.getMetadata(subjects[cursor.next()], "key");
+    }
+
+    @Benchmark
+    public boolean has(Cursor cursor) {
+        return store.hasMetadata(subjects[cursor.next()], "key");
+    }
+
+    @Benchmark
+    public void set(Cursor cursor) {
+        store.setMetadata(subjects[cursor.next()], "key", value);
+    }
+
+    @Benchmark
+    public Integer getTyped(Cursor cursor) {
+        return store.getMetadata(subjects[cursor.next()], typedKey);
+    }
+
+    @Benchmark
+    public void setTyped(Cursor cursor) {
+        store.setMetadata(subjects[cursor.next()], typedKey, 42);
+    }
+
+    @Benchmark
+    public Integer getFromContainer(Cursor cursor) {
+        return containers[cursor.next()].get(typedKey);
+    }
+
+    static class StringMetadataStore extends MetadataStoreBase<String> {
+        @Override
+        protected String disambiguate(String subject, String metadataKey) {
+            return subject + ":" + metadataKey;
+        }
+
+        @Override
+        protected Object getSubjectKey(String subject) {
+            return subject;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.bukkit.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.util.noise.SimplexNoiseGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures octave noise sampling of {@link SimplexNoiseGenerator}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+    @Param({ "1", "8" })
+    public int octaves;
+
+    private SimplexNoiseGenerator generator;
+    private double x;
+
+    @Setup
+    public void setup() {
+        generator = new SimplexNoiseGenerator(1234L);
+    }
+
+    @Benchmark
+    public double noise2D() {
+        x += 0.37;
+        return generator.noise(x, 12.5, octaves, 0.5, 0.5);
+    }
+
+    @Benchmark
+    public double noise3D() {
+        x += 0.37;
+        return generator.noise(x, 64.0, 12.5, octaves, 0.5, 0.5);
+    }
+}
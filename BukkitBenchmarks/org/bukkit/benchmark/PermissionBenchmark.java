@@ -0,0 +1,146 @@
+package org.bukkit.benchmark;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.permissions.PermissionQuery;
+import org.bukkit.permissions.ServerOperator;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.SimplePluginManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link PermissibleBase#hasPermission(String)} and
+ * {@link PermissibleBase#recalculatePermissions()} on a permission tree of
+ * configurable depth and width
+ * <p>
+ * The subject is granted the root of the tree, so every node below it is set
+ * through inherited children.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionBenchmark {
+    @Param({ "2", "6" })
+    public int depth;
+
+    @Param({ "4" })
+    public int width;
+
+    private SimplePluginManager pluginManager;
+    private final List<Permission> registered = new ArrayList<Permission>();
+    private PermissibleBase permissible;
+    private String deepest;
+    private String[] menu;
+    private PermissionQuery menuQuery;
+
+    @Setup
+    public void setup() {
+        pluginManager = StubServer.getPluginManager();
+        Plugin plugin = StubServer.createPlugin("PermissionBenchmark");
+
+        deepest = register("bench", 0);
+        permissible = new PermissibleBase(new ServerOperator() {
+            public boolean isOp() {
+                return false;
+            }
+
+            public void setOp(boolean value) {
+            }
+        });
+        permissible.addAttachment(plugin, "bench", true);
+
+        menu = new String[Math.min(32, registered.size())];
+        for (int i = 0; i < menu.length; i++) {
+            menu[i] = registered.get(i).getName();
+        }
+        menuQuery = new PermissionQuery(menu);
+    }
+
+    /**
+     * Registers a node and its children, returning the name of the last
+     * node of the deepest level
+     */
+    private String register(String name, int level) {
+        Map<String, Boolean> children = new LinkedHashMap<String, Boolean>();
+        String last = name;
+        if (level < depth) {
+            for (int i = 0; i < width; i++) {
+                String child = name + "." + i;
+                children.put(child, true);
+                last = register(child, level + 1);
+            }
+        }
+        Permission permission = new Permission(name, PermissionDefault.FALSE, children);
+        pluginManager.addPermission(permission);
+        registered.add(permission);
+        return last;
+    }
+
+    @TearDown
+    public void tearDown() {
+        permissible.clearPermissions();
+        for (Permission permission : registered) {
+            pluginManager.removePermission(permission);
+        }
+        registered.clear();
+    }
+
+    @Benchmark
+    public boolean hasRoot() {
+        return permissible.hasPermission("bench");
+    }
+
+    @Benchmark
+    public boolean hasDeepest() {
+        return permissible.hasPermission(deepest);
+    }
+
+    @Benchmark
+    public boolean hasUnset() {
+        return permissible.hasPermission("other.node");
+    }
+
+    @Benchmark
+    public int hasEachOfMenu() {
+        int allowed = 0;
+        for (String node : menu) {
+            if (permissible.hasPermission(node)) {
+                allowed++;
+            }
+        }
+        return allowed;
+    }
+
+    @Benchmark
+    public BitSet hasPermissionsOfMenu() {
+        return menuQuery.test(permissible);
+    }
+
+    @Benchmark
+    public PermissibleBase recalculate() {
+        permissible.recalculatePermissions();
+        return permissible;
+    }
+}
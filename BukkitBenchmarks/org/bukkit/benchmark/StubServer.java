@@ -0,0 +1,156 @@
+package org.bukkit.benchmark;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.Warning.WarningState;
+import org.bukkit.command.SimpleCommandMap;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginLoader;
+import org.bukkit.plugin.SimplePluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+/**
+ * A minimal {@link Server} for running API code outside of a server
+ * implementation
+ * <p>
+ * Only the methods the benchmarked code paths need are answered; every other
+ * method returns null, zero or false.
+ */
+public final class StubServer implements InvocationHandler {
+    private static Server server;
+
+    private final Logger logger = Logger.getLogger("Benchmark");
+    private SimplePluginManager pluginManager;
+
+    private StubServer() {
+        logger.setLevel(Level.WARNING);
+    }
+
+    /**
+     * Gets the stub server, installing it as the {@link Bukkit} singleton on
+     * first use
+     *
+     * @return The stub server
+     */
+    public static synchronized Server get() {
+        if (server == null) {
+            StubServer handler = new StubServer();
+            server = proxy(Server.class, handler);
+            handler.pluginManager = new SimplePluginManager(server, new SimpleCommandMap(server));
+            Bukkit.setServer(server);
+        }
+        return server;
+    }
+
+    /**
+     * Gets the plugin manager of the stub server
+     *
+     * @return The plugin manager
+     */
+    public static SimplePluginManager getPluginManager() {
+        return (SimplePluginManager) get().getPluginManager();
+    }
+
+    /**
+     * Creates an enabled plugin with the given name, loaded by a
+     * {@link JavaPluginLoader}
+     *
+     * @param name Name of the plugin
+     * @return The plugin
+     */
+    public static Plugin createPlugin(String name) {
+        final Server server = get();
+        final PluginDescriptionFile description = new PluginDescriptionFile(name, "1.0", "benchmark." + name);
+        final PluginLoader loader = new JavaPluginLoader(server);
+        final Logger logger = Logger.getLogger(name);
+
+        return proxy(Plugin.class, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("isEnabled")) {
+                    return true;
+                } else if (name.equals("getDescription")) {
+                    return description;
+                } else if (name.equals("getName")) {
+                    return description.getName();
+                } else if (name.equals("getServer")) {
+                    return server;
+                } else if (name.equals("getPluginLoader")) {
+                    return loader;
+                } else if (name.equals("getLogger")) {
+                    return logger;
+                } else if (name.equals("getDataFolder")) {
+                    return new File(description.getName());
+                }
+                return answerObjectMethod(proxy, method, args);
+            }
+        });
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("getLogger")) {
+            return logger;
+        } else if (name.equals("getPluginManager")) {
+            return pluginManager;
+        } else if (name.equals("getName")) {
+            return "StubServer";
+        } else if (name.equals("getUpdateFolder")) {
+            return "";
+        } else if (name.equals("getVersion") || name.equals("getBukkitVersion")) {
+            return "benchmark";
+        } else if (name.equals("isPrimaryThread")) {
+            return true;
+        } else if (name.equals("getWarningState")) {
+            return WarningState.OFF;
+        }
+        return answerObjectMethod(proxy, method, args);
+    }
+
+    private static Object answerObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        if (name.equals("equals")) {
+            return proxy == args[0];
+        } else if (name.equals("hashCode")) {
+            return System.identityHashCode(proxy);
+        } else if (name.equals("toString")) {
+            return method.getDeclaringClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+        } else if (name.equals("compareTo")) {
+            return 0;
+        }
+        return defaultValue(method.getReturnType());
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return '\0';
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0F;
+        }
+        return 0D;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+}
@@ -0,0 +1,14 @@
+@echo off
+rem Compiles the API together with the JMH benchmarks in BukkitBenchmarks and runs them.
+rem Put the JMH jars and the API dependency jars in lib\. Any arguments are passed to JMH.
+if not exist lib (
+    echo Missing lib directory with the JMH and API dependency jars
+    exit /b 1
+)
+title Compiling benchmarks...
+if exist target\benchmarks rmdir /s /q target\benchmarks
+mkdir target\benchmarks
+dir /s /b BukkitApi\*.java BukkitBenchmarks\*.java > target\benchmarks-sources.txt
+javac -encoding utf-8 -nowarn -cp "lib\*" -d target\benchmarks @target\benchmarks-sources.txt || exit /b 1
+title Running benchmarks...
+java -cp "target\benchmarks;lib\*" org.openjdk.jmh.Main %*
@@ -0,0 +1,20 @@
+#!/bin/sh
+# Compiles the API together with the JMH benchmarks in BukkitBenchmarks and runs them.
+# Put the JMH jars (jmh-core, jmh-generator-annprocess, jopt-simple, commons-math3)
+# and the API dependencies (guava, commons-lang, snakeyaml, json-simple, ebean) in lib/.
+# Any arguments are passed to JMH, for example: ./benchmark.sh EventBusBenchmark -p listeners=10
+if [ ! -d "lib" ]; then
+	echo "Missing lib directory with the JMH and API dependency jars"
+	exit 1
+fi
+CLASSPATH=$(find lib -name "*.jar" | tr '\n' ':')
+if [ -d "target/benchmarks" ]; then
+	echo "Deleting old benchmark classes"
+	rm -rf target/benchmarks
+fi
+mkdir -p target/benchmarks
+echo "Compiling benchmarks..."
+find BukkitApi BukkitBenchmarks -name "*.java" > target/benchmarks-sources.txt
+javac -encoding utf-8 -nowarn -cp "$CLASSPATH" -d target/benchmarks @target/benchmarks-sources.txt || exit 1
+echo "Running benchmarks..."
+java -cp "target/benchmarks:$CLASSPATH" org.openjdk.jmh.Main "$@"